@@ -0,0 +1,55 @@
+package pk.sk.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pk.sk.model.GroupSelectionSimulator;
+import pk.sk.model.Lattice;
+import pk.sk.model.Topology;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeighbourhoodBenchmark {
+    private static final int WORLD_SIZE = 100;
+
+    @Param({"1", "2", "3"})
+    private int range;
+
+    @Param({"MOORE", "VON_NEUMANN", "HEXAGONAL"})
+    private Topology topology;
+
+    @Param({"false", "true"})
+    private boolean toroidal;
+
+    private GroupSelectionSimulator simulator;
+    private int[] buffer;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void createSimulator() {
+        simulator = new GroupSelectionSimulator(WORLD_SIZE, WORLD_SIZE, topology, toroidal);
+        buffer = new int[Lattice.getMaxSize(range)];
+    }
+
+    private int nextIndex() {
+        index = (index + 7919) % (WORLD_SIZE * WORLD_SIZE);
+        return index;
+    }
+
+    @Benchmark
+    public Object getNeighboursPosition() {
+        return simulator.getNeighboursPosition(nextIndex(), range);
+    }
+
+    @Benchmark
+    public void collect(Blackhole blackhole) {
+        int count = simulator.getLattice().collect(nextIndex(), range, buffer);
+        blackhole.consume(count);
+        blackhole.consume(buffer);
+    }
+}
@@ -0,0 +1,46 @@
+package pk.sk.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pk.sk.model.GroupSelectionSimulator;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NextStepBenchmark {
+    @Param({"100", "1000", "4000"})
+    private int worldSize;
+    @Param({"100", "400"})
+    private int cellsPerGroup;
+    @Param({"10", "25"})
+    private int density;
+    @Param({"false", "true"})
+    private boolean parallel;
+    @Param({"false", "true"})
+    private boolean metrics;
+
+    private GroupSelectionSimulator simulator;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void createSimulator() {
+        simulator = Simulators.create(worldSize, cellsPerGroup, density);
+        simulator.setParallel(parallel);
+        simulator.getMetrics().setEnabled(metrics);
+    }
+
+    @Setup(Level.Iteration)
+    public void initNewSimulation() {
+        Simulators.init(simulator, seed++);
+    }
+
+    @Benchmark
+    public long nextStep() {
+        simulator.nextStep();
+        return simulator.getCycle();
+    }
+}
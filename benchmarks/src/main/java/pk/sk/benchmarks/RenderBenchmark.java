@@ -0,0 +1,40 @@
+package pk.sk.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pk.sk.controller.GridRenderer;
+import pk.sk.model.GroupSelectionSimulator;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({"100", "1000"})
+    private int worldSize;
+    @Param({"100", "400"})
+    private int cellsPerGroup;
+    @Param({"10", "25"})
+    private int density;
+
+    private GroupSelectionSimulator simulator;
+    private GridRenderer renderer;
+    private int[] pixels;
+
+    @Setup(Level.Trial)
+    public void createSimulator() {
+        simulator = Simulators.create(worldSize, cellsPerGroup, density);
+        Simulators.init(simulator, 1);
+        renderer = new GridRenderer();
+        pixels = new int[worldSize * worldSize];
+    }
+
+    @Benchmark
+    public int[] updatePixelValues() {
+        renderer.updatePixelValues(simulator, pixels);
+        return pixels;
+    }
+}
@@ -0,0 +1,35 @@
+package pk.sk.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pk.sk.model.GroupSelectionSimulator;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulatorInitBenchmark {
+    @Param({"100", "1000"})
+    private int worldSize;
+    @Param({"100", "400"})
+    private int cellsPerGroup;
+    @Param({"10", "25"})
+    private int density;
+
+    private GroupSelectionSimulator simulator;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void createSimulator() {
+        simulator = Simulators.create(worldSize, cellsPerGroup, density);
+    }
+
+    @Benchmark
+    public long initNewSimulation() {
+        Simulators.init(simulator, seed++);
+        return simulator.countAllGroups();
+    }
+}
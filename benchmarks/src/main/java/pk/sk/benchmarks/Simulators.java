@@ -0,0 +1,28 @@
+package pk.sk.benchmarks;
+
+import pk.sk.model.GroupSelectionSimulator;
+
+final class Simulators {
+    private static final int DEFECTORS = 10;
+    private static final int PERCENT_OF_INIT_POPULATION = 80;
+    private static final double CHANCE_TO_SPLITTING_GROUP = 0.02;
+
+    private Simulators() {
+    }
+
+    static GroupSelectionSimulator create(int worldSize, int cellsPerGroup, int density) {
+        GroupSelectionSimulator simulator = new GroupSelectionSimulator(worldSize, worldSize);
+        simulator.setMaxNumberOfGroups(Math.max(1, worldSize * worldSize / cellsPerGroup));
+        simulator.setMaxPopulationPerGroup(Math.max(1, (long) cellsPerGroup * density / PERCENT_OF_INIT_POPULATION));
+        simulator.setChanceToSplittingGroup(CHANCE_TO_SPLITTING_GROUP);
+        return simulator;
+    }
+
+    static void init(GroupSelectionSimulator simulator, long seed) {
+        simulator.initNewSimulation(simulator.getMaxNumberOfGroups(), PERCENT_OF_INIT_POPULATION, DEFECTORS, seed);
+        if (simulator.getPlacementShortfall() > 0) {
+            throw new IllegalStateException("The initial population does not fit the world: "
+                    + simulator.getPlacementShortfall() + " individuals were not placed");
+        }
+    }
+}
@@ -8,6 +8,7 @@ import javafx.stage.Stage;
 import pk.sk.controller.MainController;
 
 public class App extends Application {
+    private MainController controller;
 
     public static void main(String[] args) {
         launch(args);
@@ -17,6 +18,7 @@ public class App extends Application {
     public void start(Stage stage) throws Exception {
         FXMLLoader loader = new FXMLLoader(getClass().getResource("main.fxml"));
         Parent root = loader.load();
+        controller = loader.getController();
 
         Scene scene = new Scene(root);
 
@@ -30,6 +32,8 @@ public class App extends Application {
 
     @Override
     public void stop() {
-        MainController.quit();
+        if (controller != null) {
+            controller.quit();
+        }
     }
 }
@@ -0,0 +1,131 @@
+package pk.sk.controller;
+
+import pk.sk.model.IndividualType;
+import pk.sk.model.Lattice;
+import pk.sk.model.SimulationFrame;
+import pk.sk.model.SimulationSnapshot;
+
+import java.util.Arrays;
+
+public class GridRenderer {
+    public static final int ALL_PIXELS = -1;
+
+    private static final int DEFAULT_PIXEL = 0x00000000; // transparent black
+    private static final int COOPERATORS_PIXEL = 0xFFFFFFFF; // white
+    private static final int DEFECTORS_PIXEL = 0xFF000000; // black
+
+    private final int[] neighbours = new int[Lattice.getMaxSize(1)];
+    private final int[] dirtyArea = new int[Lattice.getMaxSize(1)];
+    private int[] touchedMarks = new int[0];
+    private int[] touched = new int[64];
+    private int touchedCount = ALL_PIXELS;
+    private int stamp;
+
+    public void updatePixelValues(SimulationFrame frame, int[] pixels) {
+        markIndividuals(frame, pixels);
+        markGroups(frame, pixels);
+        touchedCount = ALL_PIXELS;
+    }
+
+    public void updateChangedPixels(SimulationSnapshot snapshot, int[] pixels) {
+        int length = snapshot.getWidth() * snapshot.getHeight();
+        int changed = snapshot.getChangedCount();
+        if (snapshot.hasAllChanged() || changed > length / 16) {
+            updatePixelValues(snapshot, pixels);
+            return;
+        }
+        prepareTouchedMarks(length);
+        touchedCount = 0;
+        for (int i = 0; i < changed; i++) {
+            int position = snapshot.getChangedPosition(i);
+            repaint(snapshot, pixels, position);
+            int size = snapshot.getLattice().collect(position, 1, dirtyArea);
+            for (int j = 0; j < size; j++) {
+                repaint(snapshot, pixels, dirtyArea[j]);
+            }
+        }
+    }
+
+    public int getTouchedCount() {
+        return touchedCount;
+    }
+
+    public int getTouchedPosition(int index) {
+        return touched[index];
+    }
+
+    private void prepareTouchedMarks(int length) {
+        if (touchedMarks.length != length) {
+            touchedMarks = new int[length];
+            stamp = 0;
+        }
+        if (++stamp == 0) {
+            Arrays.fill(touchedMarks, 0);
+            stamp = 1;
+        }
+    }
+
+    private void repaint(SimulationFrame frame, int[] pixels, int position) {
+        if (touchedMarks[position] == stamp) {
+            return;
+        }
+        touchedMarks[position] = stamp;
+        if (touchedCount == touched.length) {
+            touched = Arrays.copyOf(touched, touchedCount * 2);
+        }
+        touched[touchedCount++] = position;
+        pixels[position] = frame.isOccupied(position) ? getIndividualPixel(frame, position) : getAreaPixel(frame, position);
+    }
+
+    private int getAreaPixel(SimulationFrame frame, int position) {
+        int size = frame.getLattice().collect(position, 1, neighbours);
+        int last = -1;
+        for (int i = 0; i < size; i++) {
+            if (neighbours[i] > last && frame.isOccupied(neighbours[i])) {
+                last = neighbours[i];
+            }
+        }
+        return last < 0 ? DEFAULT_PIXEL : frame.getColorsOfGroup(frame.getGroupAt(last));
+    }
+
+    private void markGroups(SimulationFrame frame, int[] pixels) {
+        int length = frame.getWidth() * frame.getHeight();
+        for (int i = 0; i < length; i++) {
+            markGroupArea(frame, pixels, i);
+        }
+    }
+
+    private void markGroupArea(SimulationFrame frame, int[] pixels, int index) {
+        if (!frame.isOccupied(index)) {
+            return;
+        }
+        int group = frame.getGroupAt(index);
+        int color = frame.getColorsOfGroup(group);
+
+        int size = frame.getLattice().collect(index, 1, neighbours);
+        for (int i = 0; i < size; i++) {
+            int position = neighbours[i];
+            if (!frame.isOccupied(position)) {
+                pixels[position] = color;
+            }
+        }
+    }
+
+    private void markIndividuals(SimulationFrame frame, int[] pixels) {
+        int length = frame.getWidth() * frame.getHeight();
+        for (int i = 0; i < length; i++) {
+            if (frame.isOccupied(i)) {
+                pixels[i] = getIndividualPixel(frame, i);
+            } else {
+                pixels[i] = DEFAULT_PIXEL;
+            }
+        }
+    }
+
+    private int getIndividualPixel(SimulationFrame frame, int position) {
+        if (IndividualType.COOPERATOR.equals(frame.getTypeAt(position))) {
+            return COOPERATORS_PIXEL;
+        }
+        return DEFECTORS_PIXEL;
+    }
+}
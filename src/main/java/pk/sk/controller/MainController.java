@@ -1,36 +1,84 @@
 package pk.sk.controller;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.value.ChangeListener;
-import javafx.embed.swing.SwingFXUtils;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
 import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.HBox;
+import javafx.stage.FileChooser;
+import pk.sk.model.CycleListener;
 import pk.sk.model.GroupSelectionSimulator;
 import pk.sk.model.IndividualType;
-
-import java.awt.image.BufferedImage;
+import pk.sk.model.SeedSequence;
+import pk.sk.model.SimulationFrame;
+import pk.sk.model.SimulationRunner;
+import pk.sk.model.SimulationSnapshot;
+import pk.sk.model.SnapshotExchange;
+import pk.sk.model.TimeSeriesStore;
+import pk.sk.model.Topology;
+import pk.sk.model.Xoshiro256Random;
+import pk.sk.trajectory.ReplayState;
+import pk.sk.trajectory.TrajectoryReader;
+
+import javax.management.JMException;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
 import java.net.URL;
-import java.util.Random;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
 
 public class MainController implements Initializable {
-    private static final int DEFAULT_PIXEL = 0x00000000; // transparent black
-    private static final int COOPERATORS_PIXEL = 0xFFFFFFFF; // white
-    private static final int DEFECTORS_PIXEL = 0xFF000000; // black
-
-    private static boolean isRunning = false;
-    private GroupSelectionSimulator simulator = new GroupSelectionSimulator();
+    private static final long FRAME_INTERVAL = TimeUnit.SECONDS.toNanos(1) / 30;
+    private static final long CHART_INTERVAL = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final int CHART_POINTS = 500;
+    private static final int POPULATION_SERIES = 0;
+    private static final int COOPERATORS_SERIES = 1;
+    private static final int DEFECTORS_SERIES = 2;
+
+    private static final boolean PRINT_STATUS = Boolean.getBoolean("pk.sk.printStatus");
+    private static final boolean METRICS = Boolean.getBoolean("pk.sk.metrics");
+
+    private final SnapshotExchange snapshotExchange = new SnapshotExchange();
+    private long shownGeneration = -1;
+    private final TimeSeriesStore history = new TimeSeriesStore(CHART_POINTS / 2,
+            "population", "cooperators", "defectors");
+    private final long[] historyValues = new long[3];
+    private final long[] chartCycles = new long[CHART_POINTS + 1];
+    private final long[] chartValues = new long[CHART_POINTS + 1];
+    private long lastChartRefresh;
+    private volatile boolean isFastForward;
+    private int delayValue;
+    private SimulationRunner runner;
+    private CycleListener cycleListener;
+    private boolean isResetPending;
+    private long nextFrameTime;
+    private GroupSelectionSimulator simulator;
+    private ReplayState replay;
+    private boolean isReplayPlaying;
+    private int replaySegment;
+    private boolean isUpdatingSlider;
+    private long lastReplayStep;
     private DoubleProperty zoomProperty = new SimpleDoubleProperty();
-    private BufferedImage outputImage;
+    private WritableImage outputImage;
     private int[] pixels = new int[]{};
+    private GridRenderer renderer = new GridRenderer();
     private XYChart.Series<Number, Number> defectorsSeries;
     private XYChart.Series<Number, Number> cooperatorsSeries;
     private XYChart.Series<Number, Number> totalPopulationSeries;
@@ -39,6 +87,12 @@ public class MainController implements Initializable {
     @FXML
     private CheckBox randomInitialNumberOfGroups;
     @FXML
+    private CheckBox fastForward;
+    @FXML
+    private CheckBox toroidal;
+    @FXML
+    private ComboBox<Topology> topology;
+    @FXML
     private ScrollPane scrollPane;
     @FXML
     private LineChart<Number, Number> lineChart;
@@ -49,8 +103,20 @@ public class MainController implements Initializable {
     @FXML
     private Button runButton;
     @FXML
+    private Button exportButton;
+    @FXML
+    private Button replayButton;
+    @FXML
+    private Slider replaySlider;
+    @FXML
     private Label statusBar;
     @FXML
+    private TextField seed;
+    @FXML
+    private Spinner<Integer> worldWidth;
+    @FXML
+    private Spinner<Integer> worldHeight;
+    @FXML
     private Spinner<Integer> initialPopulation;
     @FXML
     private Spinner<Integer> defectors;
@@ -65,80 +131,61 @@ public class MainController implements Initializable {
     @FXML
     private ImageView outputContainer;
 
-    public static void quit() {
-        isRunning = false;
-    }
-
-    private void markGroupArea(int index) {
-        if (!simulator.getIndividual(index).isPresent()) {
-            return;
-        }
-        int group = simulator.getIndividual(index).get().getGroup();
-        int color = simulator.getColorsOfGroup(group);
-
-        GroupSelectionSimulator.getNeighboursPosition(index, 1)
-                .forEach(position -> {
-                    if (!simulator.getIndividual(position).isPresent()) {
-                        pixels[position] = color;
-                    }
-                });
+    public void quit() {
+        closeReplay();
+        stopRunner();
     }
 
     private void refreshImage() {
-        updatePixelValues();
-        int width = getWidth();
-        int height = getHeight();
-        outputImage.setRGB(0, 0, width, height, pixels, 0, width);
-        outputContainer.setImage(SwingFXUtils.toFXImage(outputImage, null));
-    }
-
-    private void updatePixelValues() {
-        markIndividuals();
-        markGroups();
-    }
-
-    private void markGroups() {
-        int length = getWidth() * getHeight();
-        for (int i = 0; i < length; i++) {
-            int finalI = i;
-            simulator.getIndividual(i).ifPresent(ind -> markGroupArea(finalI));
+        int width = (int) outputImage.getWidth();
+        int height = (int) outputImage.getHeight();
+        PixelWriter pixelWriter = outputImage.getPixelWriter();
+        int touched = renderer.getTouchedCount();
+        if (touched == GridRenderer.ALL_PIXELS) {
+            pixelWriter.setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+            return;
         }
-    }
-
-    private void markIndividuals() {
-        int length = getWidth() * getHeight();
-        for (int i = 0; i < length; i++) {
-            if (simulator.getIndividual(i).isPresent()) {
-                IndividualType type = simulator.getIndividual(i).get().getType();
-                if (IndividualType.COOPERATOR.equals(type)) {
-                    pixels[i] = COOPERATORS_PIXEL;
-                } else {
-                    pixels[i] = DEFECTORS_PIXEL;
-                }
-            } else {
-                pixels[i] = DEFAULT_PIXEL;
-            }
+        for (int i = 0; i < touched; i++) {
+            int position = renderer.getTouchedPosition(i);
+            pixelWriter.setArgb(position % width, position / width, pixels[position]);
         }
     }
 
     private int getHeight() {
-        return GroupSelectionSimulator.getHEIGHT();
+        return simulator.getHeight();
     }
 
     private int getWidth() {
-        return GroupSelectionSimulator.getWIDTH();
+        return simulator.getWidth();
     }
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        int width = getWidth();
-        int height = getHeight();
-        outputImage = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
-        pixels = outputImage.getRGB(0, 0, width, height, null, 0, width);
-
+        delayValue = delay.getValue();
+        topology.getItems().setAll(Topology.values());
+        topology.setValue(Topology.MOORE);
         createEventListeners();
         setupLineChart();
         reset();
+        startFrameTimer();
+    }
+
+    private void startFrameTimer() {
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (replay != null) {
+                    if (isReplayPlaying) {
+                        stepReplay(now);
+                    }
+                    return;
+                }
+                SimulationSnapshot snapshot = snapshotExchange.take();
+                if (snapshot != null) {
+                    showSnapshot(snapshot);
+                }
+            }
+        }.start();
     }
 
     private void createEventListeners() {
@@ -195,19 +242,94 @@ public class MainController implements Initializable {
 
         animatedChart.selectedProperty().addListener((observableValue, oldValue, newValue) ->
                 lineChart.setAnimated(newValue));
+
+        delay.valueProperty().addListener(o -> {
+            delayValue = delay.getValue();
+            updateTickInterval();
+        });
+
+        fastForward.selectedProperty().addListener((observableValue, oldValue, newValue) -> {
+            isFastForward = newValue;
+            delay.setDisable(newValue);
+            updateTickInterval();
+        });
+
+        replaySlider.valueProperty().addListener((observableValue, oldValue, newValue) -> {
+            if (replay != null && !isUpdatingSlider) {
+                seekReplay(newValue.intValue());
+            }
+        });
     }
 
     public void reset() {
-        System.out.println("Cleanups...");
-        simulator.initNewSimulation(getInitialNumberOfGroups(),
+        if (PRINT_STATUS) {
+            System.out.println("Cleanups...");
+        }
+        closeReplay();
+        if (!stopRunner()) {
+            isResetPending = true;
+            resetButton.setDisable(true);
+            runButton.setDisable(true);
+            return;
+        }
+        try {
+            prepareSimulator();
+        } catch (IllegalArgumentException e) {
+            alertError("Invalid lattice", e.getMessage());
+            if (simulator != null && runner.getState() != SimulationRunner.State.FAILED) {
+                createRunner();
+            }
+            return;
+        }
+        prepareImage(simulator.getWidth(), simulator.getHeight());
+        long simulationSeed = getSeed();
+        simulator.initNewSimulation(getInitialNumberOfGroups(simulationSeed),
                 initialPopulation.getValue(),
-                defectors.getValue());
+                defectors.getValue(),
+                simulationSeed);
+        seed.setPromptText(Long.toString(simulationSeed));
+        createRunner();
+        runButton.setText("Start");
+        prepareScene(false);
         clearLineChartSeries();
+        history.clear();
+        recordHistory(simulator);
         refreshViews();
         runButton.setDisable(false);
         lineChart.setAnimated(animatedChart.isSelected());
     }
 
+    private void prepareSimulator() {
+        int width = worldWidth.getValue();
+        int height = worldHeight.getValue();
+        if (simulator != null && simulator.getWidth() == width && simulator.getHeight() == height
+                && simulator.getLattice().getTopology() == topology.getValue()
+                && simulator.getLattice().isToroidal() == toroidal.isSelected()) {
+            return;
+        }
+        simulator = new GroupSelectionSimulator(width, height, topology.getValue(), toroidal.isSelected());
+        simulator.setChanceToSplittingGroup(probabilityOfSplittingGroup.getValue() / 100);
+        simulator.setMaxNumberOfGroups(maxNumberOfGroups.getValue());
+        simulator.setMaxPopulationPerGroup(maxPopulationPerGroup.getValue());
+        if (METRICS) {
+            simulator.getMetrics().setEnabled(true);
+            try {
+                simulator.getMetrics().registerMBean("main");
+            } catch (JMException e) {
+                System.err.println("Can not register simulation metrics: " + e.getMessage());
+            }
+        }
+    }
+
+    private void prepareImage(int width, int height) {
+        if (outputImage != null && outputImage.getWidth() == width && outputImage.getHeight() == height) {
+            return;
+        }
+        outputImage = new WritableImage(width, height);
+        pixels = new int[width * height];
+        outputContainer.setImage(outputImage);
+    }
+
     private void clearLineChartSeries() {
         lineChart.setAnimated(false);
         totalPopulationSeries.getData().clear();
@@ -216,22 +338,60 @@ public class MainController implements Initializable {
     }
 
     private void refreshViews() {
-        Platform.runLater(this::refreshImage);
+        shownGeneration = -1;
+        long renderStart = System.nanoTime();
+        renderer.updatePixelValues(simulator, pixels);
+        showFrame(simulator, renderStart);
+    }
 
-        long cooperators = simulator.countAllIndividuals(IndividualType.COOPERATOR);
-        long defectors = simulator.countAllIndividuals(IndividualType.DEFECTOR);
+    private void showSnapshot(SimulationSnapshot snapshot) {
+        long renderStart = System.nanoTime();
+        if (snapshot.getGeneration() == shownGeneration + 1 && shownGeneration >= 0) {
+            renderer.updateChangedPixels(snapshot, pixels);
+        } else {
+            renderer.updatePixelValues(snapshot, pixels);
+        }
+        shownGeneration = snapshot.getGeneration();
+        showFrame(snapshot, renderStart);
+    }
+
+    private void showFrame(SimulationFrame frame, long renderStart) {
+        refreshImage();
+        simulator.getMetrics().recordRender(System.nanoTime() - renderStart);
+
+        long cooperators = frame.countAllIndividuals(IndividualType.COOPERATOR);
+        long defectors = frame.countAllIndividuals(IndividualType.DEFECTOR);
         long total = cooperators + defectors;
-        long groups = simulator.countAllGroups();
-        long cycle = simulator.getCycle();
+        long groups = frame.countAllGroups();
+        long cycle = frame.getCycle();
+
+        refreshStatusBar(cooperators, defectors, total, groups, cycle);
+        refreshLineChart();
+    }
 
-        Platform.runLater(() -> refreshStatusBar(cooperators, defectors, total, groups, cycle));
-        Platform.runLater(() -> refreshLineChart(cooperators, defectors, total, cycle));
+    private void recordHistory(GroupSelectionSimulator current) {
+        historyValues[POPULATION_SERIES] = current.countAllIndividuals();
+        historyValues[COOPERATORS_SERIES] = current.countAllIndividuals(IndividualType.COOPERATOR);
+        historyValues[DEFECTORS_SERIES] = current.countAllIndividuals(IndividualType.DEFECTOR);
+        history.append(current.getCycle(), historyValues);
     }
 
-    private int getInitialNumberOfGroups() {
+    private long getSeed() {
+        String text = seed.getText().trim();
+        if (text.isEmpty()) {
+            return SeedSequence.randomSeed();
+        }
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return text.hashCode();
+        }
+    }
+
+    private int getInitialNumberOfGroups(long simulationSeed) {
         if (randomInitialNumberOfGroups.isSelected()) {
             int min = Math.max(maxNumberOfGroups.getValue() / 2, 3);
-            return min + new Random().nextInt(maxNumberOfGroups.getValue() - min + 1);
+            return min + new Xoshiro256Random(simulationSeed).nextInt(maxNumberOfGroups.getValue() - min + 1);
         }
         return maxNumberOfGroups.getValue();
     }
@@ -253,38 +413,106 @@ public class MainController implements Initializable {
     }
 
     public void run() {
-        if (!isInputValid()) {
+        if (replay != null) {
+            isReplayPlaying = !isReplayPlaying;
+            runButton.setText(isReplayPlaying ? "Pause" : "Play");
             return;
         }
-        isRunning = !isRunning;
-        prepareScene();
-        if (isRunning) {
-            runButton.setText("Stop");
-            startSimulation();
-        } else {
+        if (!isInputValid() || runner == null || runner.getState() == SimulationRunner.State.FAILED) {
+            return;
+        }
+        if (isRunning()) {
+            runner.pause();
             runButton.setText("Start");
+        } else {
+            runner.start();
+            runButton.setText("Stop");
         }
+        prepareScene(isRunning());
     }
 
-    private void prepareScene() {
-        initialPopulation.setDisable(isRunning);
-        defectors.setDisable(isRunning);
-        resetButton.setDisable(isRunning);
-        randomInitialNumberOfGroups.setDisable(isRunning);
+    private boolean isRunning() {
+        return runner != null && runner.getState() == SimulationRunner.State.RUNNING;
     }
 
-    private void startSimulation() {
-        new Thread(() -> {
-            while (isRunning) {
-                simulator.nextStep();
-                refreshViews();
-                try {
-                    Thread.sleep(delay.getValue() + 1);
-                } catch (InterruptedException e) {
-                    break;
-                }
+    private void prepareScene(boolean isLocked) {
+        worldWidth.setDisable(isLocked);
+        worldHeight.setDisable(isLocked);
+        seed.setDisable(isLocked);
+        initialPopulation.setDisable(isLocked);
+        defectors.setDisable(isLocked);
+        resetButton.setDisable(isRunning());
+        randomInitialNumberOfGroups.setDisable(isLocked);
+        topology.setDisable(isLocked);
+        toroidal.setDisable(isLocked);
+        replayButton.setDisable(isRunning());
+    }
+
+    private void createRunner() {
+        GroupSelectionSimulator current = simulator;
+        SimulationRunner created = new SimulationRunner(current);
+        long epoch = snapshotExchange.newEpoch();
+        current.removeCycleListener(cycleListener);
+        cycleListener = finished -> publishCycle(finished, epoch);
+        current.addCycleListener(cycleListener);
+        created.setIdleHandler(() -> {
+            snapshotExchange.publishLatest(current, epoch);
+            Platform.runLater(() -> runnerIdle(created));
+        });
+        runner = created;
+        updateTickInterval();
+    }
+
+    private void updateTickInterval() {
+        if (runner != null) {
+            runner.setTickInterval(isFastForward ? 0 : delayValue, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void publishCycle(GroupSelectionSimulator current, long epoch) {
+        if (!snapshotExchange.isCurrent(epoch)) {
+            return;
+        }
+        recordHistory(current);
+        if (isFastForward) {
+            long now = System.nanoTime();
+            if (now - nextFrameTime >= 0 && snapshotExchange.publish(current, epoch)) {
+                nextFrameTime = now + FRAME_INTERVAL;
             }
-        }).start();
+            return;
+        }
+        snapshotExchange.publish(current, epoch);
+    }
+
+    private boolean stopRunner() {
+        if (runner == null) {
+            return true;
+        }
+        runner.stop();
+        try {
+            return runner.awaitIdle(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void runnerIdle(SimulationRunner idle) {
+        if (idle != runner) {
+            return;
+        }
+        if (isResetPending) {
+            isResetPending = false;
+            reset();
+            return;
+        }
+        if (runner.getState() != SimulationRunner.State.FAILED) {
+            return;
+        }
+        runButton.setText("Start");
+        runButton.setDisable(true);
+        prepareScene(false);
+        alertError("Simulation failed", runner.getFailure() + "\nReset the simulation to continue.");
     }
 
     private void refreshStatusBar(long cooperators, long defectors, long total, long groups, long cycle) {
@@ -292,21 +520,186 @@ public class MainController implements Initializable {
                 " Total Population: %-6d Cooperators: %-6d Defectors: %-6d Groups: %-6d Cycle: %-6d",
                 total, cooperators, defectors, groups, cycle);
 
-        System.out.println(statusMessage);
+        if (PRINT_STATUS) {
+            System.out.println(statusMessage);
+        }
         statusBar.setText(statusMessage);
     }
 
-    private void refreshLineChart(long cooperators, long defectors, long total, long cycle) {
-        cooperatorsSeries.getData().add(new XYChart.Data<>(cycle, cooperators));
-        defectorsSeries.getData().add(new XYChart.Data<>(cycle, defectors));
-        totalPopulationSeries.getData().add(new XYChart.Data<>(cycle, total));
+    private void refreshLineChart() {
+        long now = System.nanoTime();
+        if ((isRunning() || replay != null) && now - lastChartRefresh < CHART_INTERVAL) {
+            return;
+        }
+        lastChartRefresh = now;
+        refreshLineChartSeries(totalPopulationSeries, POPULATION_SERIES);
+        refreshLineChartSeries(cooperatorsSeries, COOPERATORS_SERIES);
+        refreshLineChartSeries(defectorsSeries, DEFECTORS_SERIES);
+    }
+
+    private void refreshLineChartSeries(XYChart.Series<Number, Number> series, int index) {
+        int count = history.downsample(index, chartCycles, chartValues);
+        ObservableList<XYChart.Data<Number, Number>> data = series.getData();
+        if (data.size() > count) {
+            data.remove(count, data.size());
+        }
+        List<XYChart.Data<Number, Number>> added = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (i < data.size()) {
+                XYChart.Data<Number, Number> point = data.get(i);
+                point.setXValue(chartCycles[i]);
+                point.setYValue(chartValues[i]);
+            } else {
+                added.add(new XYChart.Data<>(chartCycles[i], chartValues[i]));
+            }
+        }
+        data.addAll(added);
+    }
+
+    public void export() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export history");
+        fileChooser.setInitialFileName("history.csv");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File file = fileChooser.showSaveDialog(exportButton.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            history.export(writer);
+        } catch (IOException e) {
+            alertError("Export failed", e.getMessage());
+        }
+    }
+
+    public void openReplay() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Open trajectory");
+        File file = fileChooser.showOpenDialog(replayButton.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        TrajectoryReader reader = null;
+        try {
+            reader = TrajectoryReader.open(file.toPath());
+            ReplayState state = new ReplayState(reader);
+            closeReplay();
+            replay = state;
+        } catch (IOException e) {
+            closeQuietly(reader);
+            alertError("Can not open trajectory", e.getMessage());
+            return;
+        }
+
+        loadReplayHistory(0);
+        lineChart.setAnimated(animatedChart.isSelected());
+
+        prepareImage(reader.getWidth(), reader.getHeight());
+        prepareScene(true);
+        seed.setPromptText(Long.toString(reader.getSeed()));
+        isUpdatingSlider = true;
+        replaySlider.setMin(0);
+        replaySlider.setMax(reader.getFrameCount() - 1);
+        replaySlider.setValue(0);
+        isUpdatingSlider = false;
+        replaySlider.setDisable(false);
+        runButton.setText("Play");
+        runButton.setDisable(false);
+        showReplay();
+    }
+
+    private void loadReplayHistory(int segment) {
+        TrajectoryReader reader = replay.getReader();
+        history.clear();
+        for (int i = reader.getSegmentStart(segment); i < reader.getSegmentEnd(segment); i++) {
+            historyValues[POPULATION_SERIES] = reader.getPopulation(i);
+            historyValues[COOPERATORS_SERIES] = reader.getCooperators(i);
+            historyValues[DEFECTORS_SERIES] = reader.getDefectors(i);
+            history.append(reader.getCycle(i), historyValues);
+        }
+        replaySegment = segment;
+        clearLineChartSeries();
+        lastChartRefresh = 0;
+    }
+
+    private void stepReplay(long now) {
+        int last = replay.getReader().getFrameCount() - 1;
+        if (replay.getFrame() >= last) {
+            isReplayPlaying = false;
+            runButton.setText("Play");
+            return;
+        }
+        if (!isFastForward && now - lastReplayStep < TimeUnit.MILLISECONDS.toNanos(delayValue + 1)) {
+            return;
+        }
+        lastReplayStep = now;
+        try {
+            do {
+                replay.seekFrame(replay.getFrame() + 1);
+            } while (isFastForward && replay.getFrame() < last && System.nanoTime() - now < FRAME_INTERVAL / 2);
+        } catch (IOException e) {
+            replayFailed(e);
+            return;
+        }
+        isUpdatingSlider = true;
+        replaySlider.setValue(replay.getFrame());
+        isUpdatingSlider = false;
+        showReplay();
+    }
+
+    private void seekReplay(int frame) {
+        try {
+            replay.seekFrame(frame);
+        } catch (IOException e) {
+            replayFailed(e);
+            return;
+        }
+        showReplay();
+    }
+
+    private void showReplay() {
+        if (replay.getSegment() != replaySegment) {
+            loadReplayHistory(replay.getSegment());
+        }
+        shownGeneration = -1;
+        long renderStart = System.nanoTime();
+        renderer.updatePixelValues(replay, pixels);
+        showFrame(replay, renderStart);
+    }
+
+    private void replayFailed(IOException e) {
+        alertError("Can not read trajectory", e.getMessage());
+        reset();
+    }
+
+    private void closeReplay() {
+        if (replay == null) {
+            return;
+        }
+        closeQuietly(replay.getReader());
+        replay = null;
+        isReplayPlaying = false;
+        replaySlider.setDisable(true);
+        runButton.setText("Start");
+        prepareScene(false);
+    }
+
+    private static void closeQuietly(TrajectoryReader reader) {
+        if (reader == null) {
+            return;
+        }
+        try {
+            reader.close();
+        } catch (IOException e) {
+            System.err.println("Can not close trajectory: " + e.getMessage());
+        }
     }
 
     private boolean isInputValid() {
         String errorMessage = "";
         String header = "";
 
-        if (getWidth() * getHeight() < maxNumberOfGroups.getValue() * maxPopulationPerGroup.getValue()) {
+        if ((long) getWidth() * getHeight() < (long) maxNumberOfGroups.getValue() * maxPopulationPerGroup.getValue()) {
             header += "The maximum population would exceed the maximum number of cells !";
             errorMessage += "Please, decrease the 'Maximum groups' or 'Maximum population per group' value.";
         }
@@ -0,0 +1,226 @@
+package pk.sk.headless;
+
+import pk.sk.model.Checkpoint;
+import pk.sk.model.GroupSelectionSimulator;
+import pk.sk.model.IndividualType;
+import pk.sk.model.MetricsReporter;
+import pk.sk.model.Topology;
+import pk.sk.trajectory.TrajectoryRecorder;
+
+import javax.management.JMException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+public class BatchRunner {
+    private static final String USAGE = "Usage: BatchRunner [--width 100] [--height 100]"
+            + " [--topology moore|von-neumann|hexagonal] [--toroidal] [--groups 10]"
+            + " [--max-groups <groups>] [--max-population 30] [--population 100] [--defectors 10]"
+            + " [--split 0.02] [--cycles 1000] [--seed <random>] [--parallel] [--output <file>]"
+            + " [--resume <checkpoint>] [--checkpoint <file>] [--checkpoint-every <cycles>]"
+            + " [--record <file>] [--keyframe-every <cycles>] [--metrics <seconds>] [--jmx]";
+    private static final String CSV_HEADER = "cycle,population,cooperators,defectors,groups,total_costs";
+
+    private final GroupSelectionSimulator simulator;
+    private final int groups;
+    private final int percentOfInitPopulation;
+    private final int percentOfDefectors;
+    private final long cycles;
+    private final long seed;
+    private boolean resumed;
+    private Path checkpoint;
+    private long checkpointInterval;
+    private Path recording;
+    private int keyframeInterval = TrajectoryRecorder.DEFAULT_KEYFRAME_INTERVAL;
+    private long metricsInterval;
+
+    public BatchRunner(GroupSelectionSimulator simulator, int groups, int percentOfInitPopulation,
+                       int percentOfDefectors, long cycles, long seed) {
+        this.simulator = simulator;
+        this.groups = groups;
+        this.percentOfInitPopulation = percentOfInitPopulation;
+        this.percentOfDefectors = percentOfDefectors;
+        this.cycles = cycles;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) {
+        BatchRunner runner;
+        String output;
+        try {
+            CommandLine commandLine = new CommandLine(args);
+            if (commandLine.has("help")) {
+                System.out.println(USAGE);
+                return;
+            }
+            runner = fromCommandLine(commandLine);
+            output = commandLine.getString("output", null);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        } catch (IOException e) {
+            System.err.println("Can not read checkpoint: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        try (Writer writer = openOutput(output)) {
+            runner.run(writer);
+        } catch (IOException e) {
+            System.err.println("Can not write results: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static BatchRunner fromCommandLine(CommandLine commandLine) throws IOException {
+        if (commandLine.has("resume")) {
+            GroupSelectionSimulator simulator = Checkpoint.load(Paths.get(commandLine.getString("resume", null)));
+            simulator.setParallel(commandLine.has("parallel"));
+            BatchRunner runner = new BatchRunner(simulator, 0, 0, 0,
+                    commandLine.getLong("cycles", 1000), simulator.getSeed());
+            runner.resumed = true;
+            runner.configureCheckpoint(commandLine);
+            runner.configureMetrics(commandLine);
+            return runner;
+        }
+        int groups = commandLine.getInt("groups", 10);
+        int width = commandLine.getInt("width", 100);
+        int height = commandLine.getInt("height", 100);
+        int maxGroups = commandLine.getInt("max-groups", groups);
+        int maxPopulation = commandLine.getInt("max-population", 30);
+        if ((long) width * height < (long) maxGroups * maxPopulation) {
+            throw new IllegalArgumentException("The maximum population would exceed the maximum number of cells");
+        }
+        GroupSelectionSimulator simulator = new GroupSelectionSimulator(width, height,
+                commandLine.getTopology("topology", Topology.MOORE), commandLine.has("toroidal"));
+        simulator.setMaxNumberOfGroups(maxGroups);
+        simulator.setMaxPopulationPerGroup(maxPopulation);
+        simulator.setChanceToSplittingGroup(commandLine.getDouble("split", 0.02));
+        simulator.setParallel(commandLine.has("parallel"));
+
+        BatchRunner runner = new BatchRunner(simulator, groups,
+                commandLine.getInt("population", 100),
+                commandLine.getInt("defectors", 10),
+                commandLine.getLong("cycles", 1000),
+                commandLine.getLong("seed", System.nanoTime()));
+        runner.configureCheckpoint(commandLine);
+        runner.configureMetrics(commandLine);
+        return runner;
+    }
+
+    private void configureCheckpoint(CommandLine commandLine) {
+        String file = commandLine.getString("checkpoint", null);
+        setCheckpoint(file == null ? null : Paths.get(file), commandLine.getLong("checkpoint-every", 0));
+        String record = commandLine.getString("record", null);
+        setRecording(record == null ? null : Paths.get(record),
+                commandLine.getInt("keyframe-every", TrajectoryRecorder.DEFAULT_KEYFRAME_INTERVAL));
+    }
+
+    private void configureMetrics(CommandLine commandLine) {
+        metricsInterval = commandLine.getLong("metrics", 0);
+        if (metricsInterval < 0) {
+            throw new IllegalArgumentException("The metrics interval must not be negative");
+        }
+        if (metricsInterval > 0 || commandLine.has("jmx")) {
+            simulator.getMetrics().setEnabled(true);
+        }
+        if (commandLine.has("jmx")) {
+            try {
+                simulator.getMetrics().registerMBean("batch");
+            } catch (JMException e) {
+                System.err.println("Can not register simulation metrics: " + e.getMessage());
+            }
+        }
+    }
+
+    public void setCheckpoint(Path checkpoint, long checkpointInterval) {
+        this.checkpoint = checkpoint;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    public void setRecording(Path recording, int keyframeInterval) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("The keyframe interval must be positive");
+        }
+        this.recording = recording;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    private static Writer openOutput(String output) throws IOException {
+        OutputStream stream = output == null
+                ? new FileOutputStream(FileDescriptor.out)
+                : new FileOutputStream(output);
+        return new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    public void run(Writer writer) throws IOException {
+        if (metricsInterval <= 0) {
+            runSimulation(writer);
+            return;
+        }
+        try (MetricsReporter reporter = new MetricsReporter(simulator.getMetrics(), System.err,
+                metricsInterval, TimeUnit.SECONDS)) {
+            runSimulation(writer);
+            reporter.report();
+        }
+    }
+
+    private void runSimulation(Writer writer) throws IOException {
+        if (!resumed) {
+            simulator.initNewSimulation(groups, percentOfInitPopulation, percentOfDefectors, seed);
+        }
+        System.err.println("Seed: " + simulator.getSeed());
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        writeStatistics(writer);
+        if (recording == null) {
+            runCycles(writer);
+            return;
+        }
+        TrajectoryRecorder recorder = new TrajectoryRecorder(simulator, recording, keyframeInterval,
+                TrajectoryRecorder.DEFAULT_QUEUE_CAPACITY);
+        try {
+            runCycles(writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            recorder.close();
+        }
+    }
+
+    private void runCycles(Writer writer) throws IOException {
+        for (long i = 0; i < cycles; i++) {
+            simulator.nextStep();
+            writeStatistics(writer);
+            if (checkpoint != null && checkpointInterval > 0 && simulator.getCycle() % checkpointInterval == 0) {
+                Checkpoint.save(simulator, checkpoint);
+            }
+        }
+        writer.flush();
+        if (checkpoint != null) {
+            Checkpoint.save(simulator, checkpoint);
+        }
+    }
+
+    private void writeStatistics(Writer writer) throws IOException {
+        long cooperators = simulator.countAllIndividuals(IndividualType.COOPERATOR);
+        long defectors = simulator.countAllIndividuals(IndividualType.DEFECTOR);
+
+        writer.write(Long.toString(simulator.getCycle()));
+        writer.write(',');
+        writer.write(Long.toString(simulator.countAllIndividuals()));
+        writer.write(',');
+        writer.write(Long.toString(cooperators));
+        writer.write(',');
+        writer.write(Long.toString(defectors));
+        writer.write(',');
+        writer.write(Long.toString(simulator.countAllGroups()));
+        writer.write(',');
+        writer.write(Long.toString(simulator.getTotalCosts()));
+        writer.write('\n');
+    }
+}
@@ -0,0 +1,73 @@
+package pk.sk.headless;
+
+import pk.sk.model.Topology;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+class CommandLine {
+    private final Map<String, String> options = new HashMap<>();
+
+    CommandLine(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String name = arg.substring(2);
+            int separator = name.indexOf('=');
+            if (separator >= 0) {
+                options.put(name.substring(0, separator), name.substring(separator + 1));
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(name, args[++i]);
+            } else {
+                options.put(name, "true");
+            }
+        }
+    }
+
+    boolean has(String name) {
+        return options.containsKey(name);
+    }
+
+    String getString(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    int getInt(String name, int defaultValue) {
+        String value = options.get(name);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+        }
+    }
+
+    long getLong(String name, long defaultValue) {
+        String value = options.get(name);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+        }
+    }
+
+    Topology getTopology(String name, Topology defaultValue) {
+        String value = options.get(name);
+        try {
+            return value == null ? defaultValue : Topology.valueOf(value.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+        }
+    }
+
+    double getDouble(String name, double defaultValue) {
+        String value = options.get(name);
+        try {
+            return value == null ? defaultValue : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+        }
+    }
+}
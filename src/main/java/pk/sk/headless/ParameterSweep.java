@@ -0,0 +1,255 @@
+package pk.sk.headless;
+
+import pk.sk.model.GroupSelectionSimulator;
+import pk.sk.model.IndividualType;
+import pk.sk.model.Topology;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParameterSweep {
+    private static final String USAGE = "Usage: ParameterSweep [--width 100] [--height 100]"
+            + " [--topology moore|von-neumann|hexagonal] [--toroidal]"
+            + " [--groups 10] [--max-population 30] [--split 0.02] [--defectors 10] [--population 100]"
+            + " [--cycles 1000] [--replicates 10] [--seed <random>] [--threads <cores>] [--output <file>]\n"
+            + "Swept values are given as <from>:<to>:<step>, e.g. --groups 10:50:10 --split 0.01:0.05:0.01;"
+            + " replicate r of every point runs with seed + r, and the seeds column gives <first>:<last>.";
+    private static final String CSV_HEADER = "groups,maxPopulation,split,defectors,replicates,seeds,"
+            + "cooperatorFractionMean,cooperatorFractionVariance,"
+            + "extinctions,extinctionCycleMean,extinctionCycleVariance";
+    private static final long NO_EXTINCTION = -1;
+
+    private final int width;
+    private final int height;
+    private final int percentOfInitPopulation;
+    private final long cycles;
+    private final int replicates;
+    private final long seed;
+    private Topology topology = Topology.MOORE;
+    private boolean toroidal;
+
+    public ParameterSweep(int width, int height, int percentOfInitPopulation, long cycles, int replicates,
+                          long seed) {
+        this.width = width;
+        this.height = height;
+        this.percentOfInitPopulation = percentOfInitPopulation;
+        this.cycles = cycles;
+        this.replicates = replicates;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) {
+        ParameterSweep sweep;
+        List<SweepPoint> points;
+        int threads;
+        String output;
+        try {
+            CommandLine commandLine = new CommandLine(args);
+            if (commandLine.has("help")) {
+                System.out.println(USAGE);
+                return;
+            }
+            sweep = new ParameterSweep(
+                    commandLine.getInt("width", 100),
+                    commandLine.getInt("height", 100),
+                    commandLine.getInt("population", 100),
+                    commandLine.getLong("cycles", 1000),
+                    commandLine.getInt("replicates", 10),
+                    commandLine.getLong("seed", System.nanoTime()));
+            sweep.setLattice(commandLine.getTopology("topology", Topology.MOORE), commandLine.has("toroidal"));
+            points = createPoints(
+                    parseIntRange(commandLine.getString("groups", "10"), "groups"),
+                    parseIntRange(commandLine.getString("max-population", "30"), "max-population"),
+                    parseDoubleRange(commandLine.getString("split", "0.02"), "split"),
+                    parseIntRange(commandLine.getString("defectors", "10"), "defectors"));
+            threads = commandLine.getInt("threads", Runtime.getRuntime().availableProcessors());
+            output = commandLine.getString("output", null);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (Writer writer = openOutput(output)) {
+            sweep.run(points, pool, writer);
+        } catch (IOException e) {
+            System.err.println("Can not write results: " + e.getMessage());
+            System.exit(1);
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Writer openOutput(String output) throws IOException {
+        OutputStream stream = output == null
+                ? new FileOutputStream(FileDescriptor.out)
+                : new FileOutputStream(output);
+        return new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+    }
+
+    private static List<SweepPoint> createPoints(int[] groups, int[] maxPopulation, double[] split,
+                                                 int[] defectors) {
+        List<SweepPoint> points = new ArrayList<>();
+        for (int g : groups) {
+            for (int p : maxPopulation) {
+                for (double s : split) {
+                    for (int d : defectors) {
+                        points.add(new SweepPoint(g, p, s, d));
+                    }
+                }
+            }
+        }
+        return points;
+    }
+
+    private static int[] parseIntRange(String range, String name) {
+        double[] values = parseDoubleRange(range, name);
+        int[] result = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (int) Math.round(values[i]);
+        }
+        return result;
+    }
+
+    private static double[] parseDoubleRange(String range, String name) {
+        String[] parts = range.split(":");
+        try {
+            BigDecimal from = new BigDecimal(parts[0]);
+            BigDecimal to = parts.length > 1 ? new BigDecimal(parts[1]) : from;
+            BigDecimal step = parts.length > 2 ? new BigDecimal(parts[2]) : BigDecimal.ONE;
+            if (parts.length > 3 || step.signum() <= 0 || to.compareTo(from) < 0) {
+                throw new IllegalArgumentException("Invalid range of --" + name + ": " + range);
+            }
+            int count = to.subtract(from).divide(step, 0, RoundingMode.FLOOR).intValueExact() + 1;
+            double[] values = new double[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = from.add(step.multiply(BigDecimal.valueOf(i))).doubleValue();
+            }
+            return values;
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid range of --" + name + ": " + range);
+        }
+    }
+
+    public void run(List<SweepPoint> points, ForkJoinPool pool, Writer writer) throws IOException {
+        System.err.println("Seed: " + seed);
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        writer.flush();
+
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        for (SweepPoint point : points) {
+            if ((long) width * height < (long) point.getMaxNumberOfGroups() * point.getMaxPopulationPerGroup()) {
+                System.err.println("Skipping " + point + ": the maximum population exceeds the number of cells");
+                continue;
+            }
+            results.add(runPoint(point, pool)
+                    .thenAccept(line -> writeLine(writer, line))
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            completion.completeExceptionally(error);
+                        }
+                    }));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+                .thenRun(() -> completion.complete(null));
+        Throwable failure = completion.handle((ignored, error) -> error).join();
+        if (failure == null) {
+            return;
+        }
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+        if (cause instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) cause).getCause();
+        }
+        throw new IllegalStateException("Sweep failed: " + cause, cause);
+    }
+
+    public void setLattice(Topology topology, boolean toroidal) {
+        this.topology = topology;
+        this.toroidal = toroidal;
+    }
+
+    private CompletableFuture<String> runPoint(SweepPoint point, ForkJoinPool pool) {
+        List<CompletableFuture<ReplicateResult>> runs = new ArrayList<>();
+        for (int replicate = 0; replicate < replicates; replicate++) {
+            long replicateSeed = seed + replicate;
+            runs.add(CompletableFuture.supplyAsync(() -> runReplicate(point, replicateSeed), pool));
+        }
+        return CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> summarize(point, runs));
+    }
+
+    private ReplicateResult runReplicate(SweepPoint point, long replicateSeed) {
+        GroupSelectionSimulator simulator = new GroupSelectionSimulator(width, height, topology, toroidal);
+        simulator.setMaxNumberOfGroups(point.getMaxNumberOfGroups());
+        simulator.setMaxPopulationPerGroup(point.getMaxPopulationPerGroup());
+        simulator.setChanceToSplittingGroup(point.getChanceToSplittingGroup());
+        simulator.initNewSimulation(point.getMaxNumberOfGroups(), percentOfInitPopulation,
+                point.getPercentOfDefectors(), replicateSeed);
+
+        long extinctionCycle = NO_EXTINCTION;
+        for (long i = 0; i < cycles; i++) {
+            simulator.nextStep();
+            if (simulator.countAllIndividuals(IndividualType.COOPERATOR) == 0) {
+                extinctionCycle = simulator.getCycle();
+                break;
+            }
+        }
+        long cooperators = simulator.countAllIndividuals(IndividualType.COOPERATOR);
+        long population = simulator.countAllIndividuals();
+        double cooperatorFraction = population == 0 ? 0 : (double) cooperators / population;
+        return new ReplicateResult(cooperatorFraction, extinctionCycle);
+    }
+
+    private String summarize(SweepPoint point, List<CompletableFuture<ReplicateResult>> runs) {
+        RunningStatistics cooperatorFraction = new RunningStatistics();
+        RunningStatistics extinctionCycle = new RunningStatistics();
+        for (CompletableFuture<ReplicateResult> run : runs) {
+            ReplicateResult result = run.join();
+            cooperatorFraction.add(result.cooperatorFraction);
+            if (result.extinctionCycle != NO_EXTINCTION) {
+                extinctionCycle.add(result.extinctionCycle);
+            }
+        }
+        return String.format(Locale.ROOT, "%s,%d,%d:%d,%.6f,%.6f,%d,%.2f,%.2f", point, replicates,
+                seed, seed + replicates - 1, cooperatorFraction.getMean(), cooperatorFraction.getVariance(),
+                extinctionCycle.getCount(), extinctionCycle.getMean(), extinctionCycle.getVariance());
+    }
+
+    private static void writeLine(Writer writer, String line) {
+        synchronized (writer) {
+            try {
+                writer.write(line);
+                writer.write('\n');
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static class ReplicateResult {
+        private final double cooperatorFraction;
+        private final long extinctionCycle;
+
+        private ReplicateResult(double cooperatorFraction, long extinctionCycle) {
+            this.cooperatorFraction = cooperatorFraction;
+            this.extinctionCycle = extinctionCycle;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package pk.sk.headless;
+
+public class RunningStatistics {
+    private long count;
+    private double mean;
+    private double sumOfSquares;
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        sumOfSquares += delta * (value - mean);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    public double getVariance() {
+        return count < 2 ? 0 : sumOfSquares / (count - 1);
+    }
+}
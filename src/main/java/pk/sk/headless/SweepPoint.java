@@ -0,0 +1,42 @@
+package pk.sk.headless;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+public class SweepPoint {
+    private final int maxNumberOfGroups;
+    private final int maxPopulationPerGroup;
+    private final double chanceToSplittingGroup;
+    private final int percentOfDefectors;
+
+    public SweepPoint(int maxNumberOfGroups, int maxPopulationPerGroup, double chanceToSplittingGroup,
+                      int percentOfDefectors) {
+        this.maxNumberOfGroups = maxNumberOfGroups;
+        this.maxPopulationPerGroup = maxPopulationPerGroup;
+        this.chanceToSplittingGroup = chanceToSplittingGroup;
+        this.percentOfDefectors = percentOfDefectors;
+    }
+
+    public int getMaxNumberOfGroups() {
+        return maxNumberOfGroups;
+    }
+
+    public int getMaxPopulationPerGroup() {
+        return maxPopulationPerGroup;
+    }
+
+    public double getChanceToSplittingGroup() {
+        return chanceToSplittingGroup;
+    }
+
+    public int getPercentOfDefectors() {
+        return percentOfDefectors;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d,%d,%s,%d", maxNumberOfGroups, maxPopulationPerGroup,
+                BigDecimal.valueOf(chanceToSplittingGroup).stripTrailingZeros().toPlainString(),
+                percentOfDefectors);
+    }
+}
@@ -0,0 +1,53 @@
+package pk.sk.model;
+
+import java.util.Arrays;
+
+public class ChangeTracker {
+    private final boolean[] marked;
+    private int[] positions = new int[64];
+    private int count;
+    private boolean allChanged;
+
+    public ChangeTracker(int cells) {
+        this.marked = new boolean[cells];
+    }
+
+    void mark(int position) {
+        if (marked[position]) {
+            return;
+        }
+        marked[position] = true;
+        if (count == positions.length) {
+            positions = Arrays.copyOf(positions, count * 2);
+        }
+        positions[count++] = position;
+    }
+
+    void markAll() {
+        allChanged = true;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int get(int index) {
+        return positions[index];
+    }
+
+    public boolean hasAllChanged() {
+        return allChanged;
+    }
+
+    public int getCapacity() {
+        return marked.length;
+    }
+
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            marked[positions[i]] = false;
+        }
+        count = 0;
+        allChanged = false;
+    }
+}
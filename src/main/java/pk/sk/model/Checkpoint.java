@@ -0,0 +1,260 @@
+package pk.sk.model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongFunction;
+
+public final class Checkpoint {
+    private static final int MAGIC = 0x47535343;
+    private static final int VERSION = 2;
+    private static final int BOUNDED_MOORE_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 4 + 4 + 8 + 8 + 4 + 4 + 8 + 8;
+    private static final int STATE_SIZE = 8 + 8 + 4 + 4 + 8 + 8;
+    private static final int SECTION_COUNTS_SIZE = 4 + 4 + 4 + 4;
+    private static final IndividualType[] TYPES = IndividualType.values();
+
+    private Checkpoint() {
+    }
+
+    public static void save(GroupSelectionSimulator simulator, Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(getSize(simulator));
+        writeHeader(simulator, buffer);
+        writeColors(simulator.getColorsOfGroups(), buffer);
+        writeGroups(simulator.getGroupRegistry(), buffer);
+        writeSpawnSites(simulator.getBirthSites(), buffer);
+        writeChanges(simulator.getSpawnSiteChanges(), buffer);
+        writeCells(simulator.getGridStore(), buffer);
+        buffer.flip();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public static GroupSelectionSimulator load(Path path) throws IOException {
+        return load(path, Xoshiro256Random::new);
+    }
+
+    public static GroupSelectionSimulator load(Path path, LongFunction<RandomSource> randomSourceFactory)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer, randomSourceFactory);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated checkpoint: " + path, e);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupted checkpoint: " + path, e);
+        }
+    }
+
+    private static int getSize(GroupSelectionSimulator simulator) {
+        long size = HEADER_SIZE;
+        size += 4 + 8L * simulator.getColorsOfGroups().size();
+        size += 4;
+        GroupRegistry registry = simulator.getGroupRegistry();
+        for (int i = 0; i < registry.count(); i++) {
+            size += 8 + 4L * registry.getGroupAt(i).getSize();
+        }
+        SpawnSites sites = simulator.getBirthSites();
+        size += 4;
+        for (int groupNo : sites.getGroupNumbers()) {
+            size += 8 + 4L * sites.count(groupNo);
+        }
+        size += 4 + 4L * simulator.getSpawnSiteChanges().size();
+        size += simulator.getGridStore().size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Simulation is too large for a checkpoint");
+        }
+        return (int) size;
+    }
+
+    private static void writeHeader(GroupSelectionSimulator simulator, ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(simulator.getWidth());
+        buffer.putInt(simulator.getHeight());
+        buffer.putInt(simulator.getLattice().getTopology().ordinal());
+        buffer.putInt(simulator.getLattice().isToroidal() ? 1 : 0);
+        buffer.putLong(simulator.getSeed());
+        buffer.putLong(simulator.getCycle());
+        buffer.putInt(simulator.getLastGroupNumber());
+        buffer.putInt(simulator.getMaxNumberOfGroups());
+        buffer.putLong(simulator.getMaxPopulationPerGroup());
+        buffer.putDouble(simulator.getChanceToSplittingGroup());
+    }
+
+    private static void writeColors(IntIntMap colors, ByteBuffer buffer) {
+        buffer.putInt(colors.size());
+        for (int slot = 0; slot < colors.capacity(); slot++) {
+            if (colors.isUsed(slot)) {
+                buffer.putInt(colors.keyAt(slot));
+                buffer.putInt(colors.valueAt(slot));
+            }
+        }
+    }
+
+    private static void writeGroups(GroupRegistry registry, ByteBuffer buffer) {
+        buffer.putInt(registry.count());
+        for (int i = 0; i < registry.count(); i++) {
+            Group group = registry.getGroupAt(i);
+            buffer.putInt(group.getNumber());
+            buffer.putInt(group.getSize());
+            for (int j = 0; j < group.getSize(); j++) {
+                buffer.putInt(group.getMember(j));
+            }
+        }
+    }
+
+    private static void writeSpawnSites(SpawnSites sites, ByteBuffer buffer) {
+        int[] groupNumbers = sites.getGroupNumbers();
+        buffer.putInt(groupNumbers.length);
+        for (int groupNo : groupNumbers) {
+            int count = sites.count(groupNo);
+            buffer.putInt(groupNo);
+            buffer.putInt(count);
+            for (int i = 0; i < count; i++) {
+                buffer.putInt(sites.get(groupNo, i));
+            }
+        }
+    }
+
+    private static void writeChanges(ChangeTracker changes, ByteBuffer buffer) {
+        buffer.putInt(changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            buffer.putInt(changes.get(i));
+        }
+    }
+
+    private static void writeCells(GridStore individuals, ByteBuffer buffer) {
+        byte[] cells = new byte[individuals.size()];
+        for (int i = 0; i < cells.length; i++) {
+            if (!individuals.isEmpty(i)) {
+                cells[i] = (byte) (individuals.getType(i).ordinal() + 1 | individuals.getCosts(i) << 2);
+            }
+        }
+        buffer.put(cells);
+    }
+
+    private static GroupSelectionSimulator read(ByteBuffer buffer, LongFunction<RandomSource> randomSourceFactory)
+            throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a simulation checkpoint");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION && version != BOUNDED_MOORE_VERSION) {
+            throw new IOException("Unsupported checkpoint version: " + version);
+        }
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        if (width <= 0 || height <= 0) {
+            throw new IOException("Invalid world size: " + width + "x" + height);
+        }
+        Topology topology = Topology.MOORE;
+        boolean toroidal = false;
+        if (version != BOUNDED_MOORE_VERSION) {
+            int ordinal = buffer.getInt();
+            if (ordinal < 0 || ordinal >= Topology.values().length) {
+                throw new IOException("Unknown lattice topology: " + ordinal);
+            }
+            topology = Topology.values()[ordinal];
+            toroidal = buffer.getInt() != 0;
+        }
+        long cellCount = (long) width * height;
+        if (cellCount > Integer.MAX_VALUE || buffer.remaining() < STATE_SIZE + SECTION_COUNTS_SIZE + cellCount) {
+            throw new IOException("Invalid world size for the checkpoint size: " + width + "x" + height);
+        }
+        GroupSelectionSimulator simulator = new GroupSelectionSimulator(width, height, topology, toroidal,
+                randomSourceFactory);
+        long seed = buffer.getLong();
+        long cycle = buffer.getLong();
+        int lastGroupNumber = buffer.getInt();
+        simulator.setMaxNumberOfGroups(buffer.getInt());
+        simulator.setMaxPopulationPerGroup(buffer.getLong());
+        simulator.setChanceToSplittingGroup(buffer.getDouble());
+        simulator.restore(seed, cycle, lastGroupNumber);
+
+        IntIntMap colors = simulator.getColorsOfGroups();
+        int colorCount = buffer.getInt();
+        for (int i = 0; i < colorCount; i++) {
+            colors.put(buffer.getInt(), buffer.getInt());
+        }
+
+        int groupsStart = buffer.position();
+        skipGroups(buffer);
+        readSpawnSites(simulator.getBirthSites(), buffer);
+        ChangeTracker changes = simulator.getSpawnSiteChanges();
+        int changeCount = buffer.getInt();
+        for (int i = 0; i < changeCount; i++) {
+            changes.mark(buffer.getInt());
+        }
+        byte[] cells = new byte[width * height];
+        buffer.get(cells);
+
+        buffer.position(groupsStart);
+        readGroups(simulator, cells, buffer);
+        simulator.finishRestore();
+        return simulator;
+    }
+
+    private static void skipGroups(ByteBuffer buffer) {
+        int groupCount = buffer.getInt();
+        for (int i = 0; i < groupCount; i++) {
+            buffer.getInt();
+            int size = buffer.getInt();
+            buffer.position(buffer.position() + 4 * size);
+        }
+    }
+
+    private static void readGroups(GroupSelectionSimulator simulator, byte[] cells, ByteBuffer buffer)
+            throws IOException {
+        int groupCount = buffer.getInt();
+        for (int i = 0; i < groupCount; i++) {
+            Group group = simulator.getGroupRegistry().getOrCreate(buffer.getInt());
+            int size = buffer.getInt();
+            if (size < 0 || size > cells.length) {
+                throw new IOException("Corrupted checkpoint: invalid size of group " + group.getNumber());
+            }
+            group.ensureCapacity(size);
+            for (int j = 0; j < size; j++) {
+                int position = buffer.getInt();
+                if (position < 0 || position >= cells.length) {
+                    throw new IOException("Corrupted checkpoint: invalid member at " + position);
+                }
+                int cell = cells[position] & 0xFF;
+                if (cell == 0 || simulator.isOccupied(position)) {
+                    throw new IOException("Corrupted checkpoint: invalid member at " + position);
+                }
+                simulator.restoreIndividual(group, position, TYPES[(cell & 3) - 1], cell >>> 2);
+            }
+        }
+    }
+
+    private static void readSpawnSites(SpawnSites sites, ByteBuffer buffer) {
+        int groupCount = buffer.getInt();
+        for (int i = 0; i < groupCount; i++) {
+            int groupNo = buffer.getInt();
+            int count = buffer.getInt();
+            for (int j = 0; j < count; j++) {
+                sites.set(buffer.getInt(), groupNo);
+            }
+        }
+    }
+}
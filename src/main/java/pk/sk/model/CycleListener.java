@@ -0,0 +1,5 @@
+package pk.sk.model;
+
+public interface CycleListener {
+    void cycleCompleted(GroupSelectionSimulator simulator);
+}
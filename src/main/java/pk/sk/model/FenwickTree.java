@@ -0,0 +1,50 @@
+package pk.sk.model;
+
+class FenwickTree {
+    private final int[] tree;
+    private final int[] weights;
+    private final int highestStep;
+    private int total;
+
+    FenwickTree(int size) {
+        this.tree = new int[size + 1];
+        this.weights = new int[size];
+        this.highestStep = size == 0 ? 0 : Integer.highestOneBit(size);
+    }
+
+    void add(int index, int delta) {
+        weights[index] += delta;
+        total += delta;
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    int get(int index) {
+        return weights[index];
+    }
+
+    int getTotal() {
+        return total;
+    }
+
+    int prefix(int index) {
+        int sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    int find(int value) {
+        int index = 0;
+        for (int step = highestStep; step > 0; step >>= 1) {
+            int next = index + step;
+            if (next < tree.length && tree[next] <= value) {
+                index = next;
+                value -= tree[next];
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,27 @@
+package pk.sk.model;
+
+public interface GridStore {
+    int EMPTY = -1;
+
+    int size();
+
+    boolean isEmpty(int position);
+
+    int getGroup(int position);
+
+    IndividualType getType(int position);
+
+    int getCosts(int position);
+
+    void set(int position, int group, IndividualType type, int costs);
+
+    void setGroup(int position, int group);
+
+    void setType(int position, IndividualType type, int costs);
+
+    void remove(int position);
+
+    void clear();
+
+    void copyFrom(GridStore source);
+}
@@ -0,0 +1,101 @@
+package pk.sk.model;
+
+import java.util.Arrays;
+
+class Group {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int[] costsHistogram;
+    private int number;
+    private int[] members = new int[INITIAL_CAPACITY];
+    private int size;
+    private int cooperators;
+    private long sumOfCosts;
+
+    Group(int number, int maxCost) {
+        this.number = number;
+        this.costsHistogram = new int[maxCost + 1];
+    }
+
+    void reset(int number) {
+        this.number = number;
+        size = 0;
+        cooperators = 0;
+        sumOfCosts = 0;
+        Arrays.fill(costsHistogram, 0);
+    }
+
+    int getNumber() {
+        return number;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    int getMember(int index) {
+        return members[index];
+    }
+
+    int getCooperators() {
+        return cooperators;
+    }
+
+    int getDefectors() {
+        return size - cooperators;
+    }
+
+    long getSumOfCosts() {
+        return sumOfCosts;
+    }
+
+    int getLowestCost() {
+        if (cooperators == 0) {
+            return 0;
+        }
+        for (int cost = 0; cost < costsHistogram.length; cost++) {
+            if (costsHistogram[cost] > 0) {
+                return cost;
+            }
+        }
+        return 0;
+    }
+
+    void ensureCapacity(int capacity) {
+        if (members.length < capacity) {
+            members = Arrays.copyOf(members, capacity);
+        }
+    }
+
+    int addMember(int position, IndividualType type, int costs) {
+        if (size == members.length) {
+            members = Arrays.copyOf(members, size * 2);
+        }
+        members[size] = position;
+        addStatistics(type, costs);
+        return size++;
+    }
+
+    int removeMember(int index, IndividualType type, int costs) {
+        int last = members[--size];
+        members[index] = last;
+        removeStatistics(type, costs);
+        return last;
+    }
+
+    void addStatistics(IndividualType type, int costs) {
+        if (IndividualType.COOPERATOR.equals(type)) {
+            cooperators++;
+            sumOfCosts += costs;
+            costsHistogram[costs]++;
+        }
+    }
+
+    void removeStatistics(IndividualType type, int costs) {
+        if (IndividualType.COOPERATOR.equals(type)) {
+            cooperators--;
+            sumOfCosts -= costs;
+            costsHistogram[costs]--;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package pk.sk.model;
+
+final class GroupEconomics {
+    private int[] sizes = new int[0];
+    private int[] cooperators = new int[0];
+    private int[] lowestCosts = new int[0];
+    private long[] sumsOfCosts = new long[0];
+    private boolean[] cooperative = new boolean[0];
+
+    void evaluate(GroupRegistry groups, long maxPopulationPerGroup) {
+        ensureCapacity(groups.count());
+        for (int i = 0; i < groups.count(); i++) {
+            Group group = groups.getGroupAt(i);
+            sizes[i] = group.getSize();
+            cooperators[i] = group.getCooperators();
+            lowestCosts[i] = group.getLowestCost();
+            sumsOfCosts[i] = group.getSumOfCosts();
+        }
+        int count = groups.count();
+        evaluateRatios(count, (double) maxPopulationPerGroup / count + 1);
+    }
+
+    private void evaluateRatios(int count, double criticalPoint) {
+        int[] sizes = this.sizes;
+        int[] cooperators = this.cooperators;
+        int[] lowestCosts = this.lowestCosts;
+        long[] sumsOfCosts = this.sumsOfCosts;
+        boolean[] cooperative = this.cooperative;
+        for (int i = 0; i < count; i++) {
+            long totalCosts = lowestCosts[i] * (sizes[i] - 1L);
+            double ratio = (double) (sumsOfCosts[i] - lowestCosts[i]) / totalCosts;
+            cooperative[i] = cooperators[i] > 0 & (totalCosts == 0 | ratio > criticalPoint);
+        }
+    }
+
+    private void ensureCapacity(int groupCount) {
+        if (sizes.length >= groupCount) {
+            return;
+        }
+        int capacity = Math.max(groupCount, sizes.length * 2);
+        sizes = new int[capacity];
+        cooperators = new int[capacity];
+        lowestCosts = new int[capacity];
+        sumsOfCosts = new long[capacity];
+        cooperative = new boolean[capacity];
+    }
+
+    boolean isCooperative(int index) {
+        return cooperative[index];
+    }
+}
@@ -0,0 +1,180 @@
+package pk.sk.model;
+
+import java.util.Arrays;
+
+class GroupRegistry {
+    private final IntMap<Group> groups = new IntMap<>();
+    private Group[] ordered = new Group[16];
+    private int count;
+    private Group[] released = new Group[16];
+    private int releasedCount;
+    private final int[] memberIndex;
+    private final int maxCost;
+    private long population;
+    private long cooperators;
+    private long totalCosts;
+
+    GroupRegistry(int cells, int maxCost) {
+        this.memberIndex = new int[cells];
+        this.maxCost = maxCost;
+    }
+
+    void clear() {
+        for (int i = 0; i < count; i++) {
+            release(ordered[i]);
+            ordered[i] = null;
+        }
+        count = 0;
+        groups.clear();
+        population = 0;
+        cooperators = 0;
+        totalCosts = 0;
+    }
+
+    void add(int groupNo, int position, IndividualType type, int costs) {
+        add(getOrCreate(groupNo), position, type, costs);
+    }
+
+    Group getOrCreate(int groupNo) {
+        Group group = groups.get(groupNo);
+        if (group == null) {
+            group = acquire(groupNo);
+            groups.put(groupNo, group);
+            insert(group);
+        }
+        return group;
+    }
+
+    void add(Group group, int position, IndividualType type, int costs) {
+        memberIndex[position] = group.addMember(position, type, costs);
+        population++;
+        addStatistics(type, costs, 1);
+    }
+
+    void remove(int groupNo, int position, IndividualType type, int costs) {
+        Group group = groups.get(groupNo);
+        int index = memberIndex[position];
+        int moved = group.removeMember(index, type, costs);
+        memberIndex[moved] = index;
+        population--;
+        addStatistics(type, costs, -1);
+        if (group.getSize() == 0) {
+            drop(group);
+        }
+    }
+
+    void removeGroup(Group group) {
+        population -= group.getSize();
+        cooperators -= group.getCooperators();
+        totalCosts -= group.getSumOfCosts();
+        drop(group);
+    }
+
+    void changeType(int groupNo, IndividualType oldType, int oldCosts, IndividualType newType, int newCosts) {
+        Group group = groups.get(groupNo);
+        group.removeStatistics(oldType, oldCosts);
+        group.addStatistics(newType, newCosts);
+        addStatistics(oldType, oldCosts, -1);
+        addStatistics(newType, newCosts, 1);
+    }
+
+    private void addStatistics(IndividualType type, int costs, int sign) {
+        if (IndividualType.COOPERATOR.equals(type)) {
+            cooperators += sign;
+        }
+        totalCosts += sign * costs;
+    }
+
+    private void insert(Group group) {
+        if (count == ordered.length) {
+            ordered = Arrays.copyOf(ordered, count * 2);
+        }
+        int index = count;
+        while (index > 0 && ordered[index - 1].getNumber() > group.getNumber()) {
+            index--;
+        }
+        System.arraycopy(ordered, index, ordered, index + 1, count - index);
+        ordered[index] = group;
+        count++;
+    }
+
+    private void drop(Group group) {
+        groups.remove(group.getNumber());
+        int index = indexOf(group.getNumber());
+        System.arraycopy(ordered, index + 1, ordered, index, count - index - 1);
+        ordered[--count] = null;
+        release(group);
+    }
+
+    private int indexOf(int groupNo) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int number = ordered[middle].getNumber();
+            if (number < groupNo) {
+                low = middle + 1;
+            } else if (number > groupNo) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        throw new IllegalStateException("Unknown group: " + groupNo);
+    }
+
+    private Group acquire(int groupNo) {
+        Group group = releasedCount == 0 ? new Group(groupNo, maxCost) : released[--releasedCount];
+        released[releasedCount] = null;
+        group.reset(groupNo);
+        return group;
+    }
+
+    private void release(Group group) {
+        if (releasedCount == released.length) {
+            released = Arrays.copyOf(released, releasedCount * 2);
+        }
+        released[releasedCount++] = group;
+    }
+
+    Group get(int groupNo) {
+        return groups.get(groupNo);
+    }
+
+    int getGroupSize(int groupNo) {
+        Group group = groups.get(groupNo);
+        return group == null ? 0 : group.getSize();
+    }
+
+    int count() {
+        return count;
+    }
+
+    Group getGroupAt(int index) {
+        return ordered[index];
+    }
+
+    long getPopulation() {
+        return population;
+    }
+
+    long getCooperators() {
+        return cooperators;
+    }
+
+    long getDefectors() {
+        return population - cooperators;
+    }
+
+    long getTotalCosts() {
+        return totalCosts;
+    }
+
+    int[] getGroupNumbers(int[] buffer) {
+        int[] numbers = buffer.length < count ? new int[Math.max(count, buffer.length * 2)] : buffer;
+        for (int i = 0; i < count; i++) {
+            numbers[i] = ordered[i].getNumber();
+        }
+        return numbers;
+    }
+}
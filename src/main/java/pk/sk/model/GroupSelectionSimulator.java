@@ -1,13 +1,13 @@
 package pk.sk.model;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.LongFunction;
 
-public class GroupSelectionSimulator {
-    private static final int WIDTH = 100;
-    private static final int HEIGHT = 100;
+public class GroupSelectionSimulator implements SimulationFrame {
+    private static final int DEFAULT_WIDTH = 100;
+    private static final int DEFAULT_HEIGHT = 100;
     private static final int LEADERS_RANGE = 3;
     private static final int INDIVIDUAL_RANGE = 2;
     private static final int GROUP_RANGE = 1;
@@ -16,90 +16,231 @@ public class GroupSelectionSimulator {
     private static final int MIN_COST = 3;
     private static final int MAX_COLOR = 224;
     private static final int MIN_COLOR = 80;
-    private static final int WATCH_DOG_TICKS = 500;
+    private static final int SPLIT_LEADERS_ATTEMPTS = 32;
+    private static final int GROUPS_PER_CHUNK = 64;
+    private static final int CELLS_PER_CHUNK = 4096;
+    private static final int ROWS_PER_STRIPE = 16;
+    private static final byte FIRST_SPLIT_QUEUE = 1;
+    private static final byte SECOND_SPLIT_QUEUE = 2;
+    private static final int LEADERS_STREAM = 1;
+    private static final int COOPERATORS_STREAM = 2;
+    private static final int DEFECTORS_STREAM = 3;
+    private static final int COLORS_STREAM = 4;
+    private static final int SPLIT_STREAM = 5;
+    private static final int REPRODUCTION_STREAM = 6;
+    private static final int REPRODUCTION_RETRY_STREAM = 7;
+    private static final int KILL_STREAM = 8;
 
-    private List<Optional<Individual>> individuals = new ArrayList<>();
-    private Random random = new Random();
-    private HashMap<Integer, Integer> colorsOfGroup = new HashMap<>();
+    private final int width;
+    private final int height;
+    private final GridStore individuals;
+    private final GroupRegistry groupRegistry;
+    private final Lattice lattice;
+    private final int[] neighbours = new int[Lattice.getMaxSize(LEADERS_RANGE)];
+    private final int[] candidateMarks;
+    private int candidateStamp;
+    private final int[] changedArea = new int[Lattice.getMaxSize(INDIVIDUAL_RANGE)];
+    private final int[] splitArea = new int[Lattice.getMaxSize(INDIVIDUAL_RANGE)];
+    private final PositionQueue firstSplitQueue = new PositionQueue();
+    private final PositionQueue secondSplitQueue = new PositionQueue();
+    private final byte[] splitQueued;
+    private final SpawnSites birthSites;
+    private final ChangeTracker spawnSiteChanges;
+    private final LongFunction<RandomSource> randomSourceFactory;
+    private int[] refreshPositions = new int[64];
+    private int[] refreshGroups = new int[64];
+    private int refreshCount;
+    private final IntConsumer refreshChunk = this::refreshSpawnSites;
+    private int[] groupNumbers = new int[0];
+    private int reproducingGroups;
+    private final IntConsumer proposeChunk = this::proposeOffspring;
+    private int[] proposedSites = new int[0];
+    private IndividualType[] proposedTypes = new IndividualType[0];
+    private int[] proposedCosts = new int[0];
+    private boolean[] committed = new boolean[0];
+    private final int stripes;
+    private final int rowsPerStripe;
+    private final int pairedStripes;
+    private final int[] stripeStarts;
+    private final int[] stripeCursors;
+    private int[] stripeProposals = new int[0];
+    private int commitColor;
+    private final IntConsumer commitChunk = this::commitStripe;
+    private Worker[] workers = new Worker[0];
+    private final GroupEconomics economics = new GroupEconomics();
+    private final SimulationMetrics metrics = new SimulationMetrics();
+    private boolean parallel;
+    private ChangeTracker[] changeTrackers = new ChangeTracker[0];
+    private CycleListener[] cycleListeners = new CycleListener[0];
+    private SimulationEventListener[] eventListeners = new SimulationEventListener[0];
+    private final SimulationEventBatch events = new SimulationEventBatch(SimulationEventBatch.DEFAULT_CAPACITY);
+    private boolean recordingEvents;
+    private final RandomSource random;
+    private final RandomSource colorRandom;
+    private long seed;
+    private long placementShortfall;
+    private final IntIntMap colorsOfGroup = new IntIntMap();
     private long cycle;
     private int lastGroupNumber;
     private int maxNumberOfGroups = 10;
     private long maxPopulationPerGroup = 30;
     private double chanceToSplittingGroup = 0.02;
 
-    public static List<Integer> getNeighboursPosition(int index, int range) {
-        List<Integer> positionList = new ArrayList<>();
-        int xCord = index % WIDTH;
-        int yCord = index / HEIGHT;
-
-        for (int i = -range; i <= range; i++) {
-            for (int j = -range; j <= range; j++) {
-                int y = yCord + i;
-                int x = xCord + j;
-                int position = y * WIDTH + x;
-                if (isValidPosition(x, y) && position != index) {
-                    positionList.add(position);
-                }
-            }
+    public GroupSelectionSimulator() {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+    }
+
+    public GroupSelectionSimulator(int width, int height) {
+        this(width, height, Xoshiro256Random::new);
+    }
+
+    public GroupSelectionSimulator(int width, int height, Topology topology, boolean toroidal) {
+        this(width, height, topology, toroidal, Xoshiro256Random::new);
+    }
+
+    public GroupSelectionSimulator(int width, int height, LongFunction<RandomSource> randomSourceFactory) {
+        this(width, height, Topology.MOORE, false, randomSourceFactory);
+    }
+
+    public GroupSelectionSimulator(int width, int height, Topology topology, boolean toroidal,
+                                   LongFunction<RandomSource> randomSourceFactory) {
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid world size: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.lattice = new Lattice(width, height, LEADERS_RANGE, topology, toroidal);
+        this.individuals = new PrimitiveGridStore(width * height);
+        this.groupRegistry = new GroupRegistry(width * height, MAX_COST);
+        this.candidateMarks = new int[width * height];
+        this.splitQueued = new byte[width * height];
+        this.birthSites = new SpawnSites(width * height);
+        this.spawnSiteChanges = new ChangeTracker(width * height);
+        this.randomSourceFactory = randomSourceFactory;
+        this.random = randomSourceFactory.apply(0);
+        this.colorRandom = randomSourceFactory.apply(0);
+        this.stripes = Math.max(1, height / ROWS_PER_STRIPE);
+        this.rowsPerStripe = height / stripes;
+        this.pairedStripes = toroidal && stripes > 1 && stripes % 2 == 1 ? stripes - 1 : stripes;
+        this.stripeStarts = new int[stripes + 1];
+        this.stripeCursors = new int[stripes];
+    }
+
+    public List<Integer> getNeighboursPosition(int index, int range) {
+        int[] buffer = new int[Lattice.getMaxSize(range)];
+        int count = lattice.collect(index, range, buffer);
+        List<Integer> positionList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            positionList.add(buffer[i]);
         }
         return positionList;
     }
 
-    private static boolean isValidPosition(int x, int y) {
-        return (x >= 0) && (x < WIDTH) && (y >= 0) && (y < HEIGHT);
+    @Override
+    public Lattice getLattice() {
+        return lattice;
     }
 
-    public static int getWIDTH() {
-        return WIDTH;
+    @Override
+    public int getWidth() {
+        return width;
     }
 
-    public static int getHEIGHT() {
-        return HEIGHT;
+    @Override
+    public int getHeight() {
+        return height;
     }
 
     private void cleanUp() {
         cycle = 0;
         lastGroupNumber = 0;
         individuals.clear();
-        individuals.addAll(Collections.nCopies(HEIGHT * WIDTH, Optional.empty()));
+        groupRegistry.clear();
         colorsOfGroup.clear();
+        birthSites.clear();
+        spawnSiteChanges.clear();
+        for (ChangeTracker tracker : changeTrackers) {
+            tracker.markAll();
+        }
     }
 
     public void initNewSimulation(int numberOfGroups, int percentOfInitPopulation, int percentOfDefectors) {
+        initNewSimulation(numberOfGroups, percentOfInitPopulation, percentOfDefectors, SeedSequence.randomSeed());
+    }
+
+    public void initNewSimulation(int numberOfGroups, int percentOfInitPopulation, int percentOfDefectors,
+                                  long seed) {
+        this.seed = seed;
         cleanUp();
+        placementShortfall = 0;
+        useStream(LEADERS_STREAM);
         generateRandomGroupLeaders(numberOfGroups);
 
         long initPopulation =
                 percentOfInitPopulation * numberOfGroups * maxPopulationPerGroup / 100 - countAllGroups();
+        useStream(COOPERATORS_STREAM);
         generateRandomCooperators(initPopulation);
 
-        long numberOfDefectors = getAllIndividuals().count() * percentOfDefectors / 100;
+        long numberOfDefectors = countAllIndividuals() * percentOfDefectors / 100;
+        useStream(DEFECTORS_STREAM);
         chooseRandomDefectors(numberOfDefectors);
+        if (placementShortfall > 0) {
+            metrics.add(SimulationMetrics.PLACEMENT_ABORTS, 1);
+        }
+        metrics.flush();
+        dispatchReset();
+    }
+
+    private void useStream(int stream) {
+        random.setSeed(SeedSequence.derive(seed, stream));
+    }
+
+    private void useStream(int stream, int groupNo) {
+        random.setSeed(SeedSequence.derive(seed, stream, cycle, groupNo));
     }
 
     private void generateRandomGroupLeaders(int numberOfGroups) {
-        for (int i = 0; i < numberOfGroups; i++) {
-            int position = random.nextInt(WIDTH * HEIGHT);
+        int cells = width * height;
+        int[] swappedCells = new int[cells];
+        boolean[] blocked = new boolean[cells];
+        int candidates = cells;
+        int remaining = cells;
+        int created = 0;
+        while (created < numberOfGroups && candidates > 0) {
+            int index = random.nextInt(remaining--);
+            int position = swappedCells[index] == 0 ? index : swappedCells[index] - 1;
+            swappedCells[index] = swappedCells[remaining] == 0 ? remaining + 1 : swappedCells[remaining];
 
-            if (individuals.get(position).isPresent()
-                    || !getNearestNeighboursIn(position, LEADERS_RANGE).isEmpty()) {
-                i--;
-            } else {
-                Individual newIndividual = new Individual(lastGroupNumber++, position, getRandomCosts());
-                individuals.set(position, Optional.of(newIndividual));
-                colorsOfGroup.put(i, getRandomColor());
+            if (!blocked[position]) {
+                int groupNo = lastGroupNumber++;
+                placeIndividual(position, groupNo, IndividualType.COOPERATOR, getRandomCosts());
+                colorsOfGroup.put(groupNo, getRandomColor(groupNo));
+                created++;
+                candidates -= block(position, blocked);
             }
         }
+        if (created < numberOfGroups) {
+            placementShortfall += numberOfGroups - created;
+            System.err.println("Not enough space for group leaders (created groups: "
+                    + created + " of " + numberOfGroups + ")");
+        }
     }
 
-    private List<Individual> getNearestNeighboursIn(int position, int range) {
-        List<Individual> neighbours = new ArrayList<>();
-        getNeighboursPosition(position, range)
-                .forEach(coordinates -> individuals.get(coordinates).ifPresent(neighbours::add));
-        return neighbours;
+    private int block(int position, boolean[] blocked) {
+        int count = blocked[position] ? 0 : 1;
+        blocked[position] = true;
+        int size = lattice.collect(position, LEADERS_RANGE, neighbours);
+        for (int i = 0; i < size; i++) {
+            if (!blocked[neighbours[i]]) {
+                blocked[neighbours[i]] = true;
+                count++;
+            }
+        }
+        return count;
     }
 
-    private int getRandomColor() {
+    private int getRandomColor(int groupNo) {
+        colorRandom.setSeed(SeedSequence.derive(seed, COLORS_STREAM, groupNo));
         int red = getRandomComponentOfColor();
         int green = getRandomComponentOfColor();
         int blue = getRandomComponentOfColor();
@@ -108,105 +249,261 @@ public class GroupSelectionSimulator {
     }
 
     private int getRandomComponentOfColor() {
-        return random.nextInt(MAX_COLOR - MIN_COLOR) + MIN_COLOR;
+        return colorRandom.nextInt(MAX_COLOR - MIN_COLOR) + MIN_COLOR;
     }
 
     private void generateRandomCooperators(long population) {
-        int range = WIDTH * HEIGHT;
-        int watchDog = WATCH_DOG_TICKS;
-        for (int i = 0; i < population; i++) {
-            if (watchDog-- == 0) {
-                System.err.println("WatchDog can not hold it anymore! (created population: "
-                        + (i + lastGroupNumber) + " of " + (population + lastGroupNumber) + ")");
-                break;
-            }
-            int position = random.nextInt(range);
-            if (individuals.get(position).isPresent()) {
-                i--;
-                continue;
+        SpawnSites sites = new SpawnSites(width * height);
+        boolean[] contested = new boolean[width * height];
+        FenwickTree weights = new FenwickTree(lastGroupNumber);
+        for (int j = 0; j < groupRegistry.count(); j++) {
+            Group group = groupRegistry.getGroupAt(j);
+            for (int i = 0; i < group.getSize(); i++) {
+                addSettlementArea(group.getMember(i), group.getNumber(), sites, contested, weights);
+            }
+        }
+
+        long created = 0;
+        while (created < population && weights.getTotal() > 0) {
+            int value = random.nextInt(weights.getTotal());
+            int groupNo = weights.find(value);
+            int position = sites.get(groupNo, value - weights.prefix(groupNo));
+            placeIndividual(position, groupNo, IndividualType.COOPERATOR, getRandomCosts());
+            addSettlementArea(position, groupNo, sites, contested, weights);
+            if (getGroupSize(groupNo) >= maxPopulationPerGroup) {
+                weights.add(groupNo, -weights.get(groupNo));
             }
-            List<Individual> neighbours = getNearestNeighboursIn(position, INDIVIDUAL_RANGE);
-            long neighboursGroup = countNeighboursGroups(neighbours);
-            if (neighboursGroup != 1
-                    || getGroupSize(neighbours.get(0).getGroup()) >= maxPopulationPerGroup) {
-                i--;
+            created++;
+        }
+        if (created < population) {
+            placementShortfall += population - created;
+            System.err.println("Not enough space for the initial population (created population: "
+                    + (created + lastGroupNumber) + " of " + (population + lastGroupNumber) + ")");
+        }
+    }
+
+    private void addSettlementArea(int position, int groupNo, SpawnSites sites, boolean[] contested,
+                                   FenwickTree weights) {
+        int delta = 0;
+        if (sites.getGroup(position) == groupNo) {
+            sites.set(position, GridStore.EMPTY);
+            delta--;
+        }
+        int size = lattice.collect(position, INDIVIDUAL_RANGE, neighbours);
+        for (int i = 0; i < size; i++) {
+            int neighbour = neighbours[i];
+            if (!individuals.isEmpty(neighbour) || contested[neighbour]) {
                 continue;
             }
-            watchDog = WATCH_DOG_TICKS;
-            Individual newIndividual = new Individual(neighbours.get(0).getGroup(), position, getRandomCosts());
-            individuals.set(position, Optional.of(newIndividual));
+            int siteGroup = sites.getGroup(neighbour);
+            if (siteGroup == GridStore.EMPTY) {
+                sites.set(neighbour, groupNo);
+                delta++;
+            } else if (siteGroup != groupNo) {
+                contested[neighbour] = true;
+                sites.set(neighbour, GridStore.EMPTY);
+                addWeight(weights, siteGroup, -1);
+            }
         }
+        addWeight(weights, groupNo, delta);
     }
 
-    private long countNeighboursGroups(List<Individual> neighbours) {
-        return neighbours.stream()
-                .map(Individual::getGroup)
-                .distinct()
-                .count();
+    private void addWeight(FenwickTree weights, int groupNo, int delta) {
+        if (delta != 0 && getGroupSize(groupNo) < maxPopulationPerGroup) {
+            weights.add(groupNo, delta);
+        }
     }
 
-    private long getGroupSize(int groupNo) {
-        return getGroup(groupNo).count();
+    public long getPlacementShortfall() {
+        return placementShortfall;
     }
 
-    private Stream<Individual> getGroup(Integer groupNo) {
-        return getAllIndividuals().filter(individual -> individual.getGroup() == groupNo);
+    private void placeIndividual(int position, int groupNo, IndividualType type, int costs) {
+        removeIndividual(position);
+        individuals.set(position, groupNo, type, costs);
+        registerBirth(position, groupNo, type, costs);
     }
 
-    private Stream<Individual> getAllIndividuals() {
-        return individuals.stream()
-                .filter(Optional::isPresent)
-                .map(Optional::get);
+    private void registerBirth(int position, int groupNo, IndividualType type, int costs) {
+        groupRegistry.add(groupNo, position, type, costs);
+        markChanged(position);
+        emit(SimulationEventType.BORN, position, groupNo, groupNo, type, costs);
     }
 
-    private void chooseRandomDefectors(long defectors) {
-        List<Individual> individualList = getIndividualsList();
-        for (int i = 0; i < defectors; i++) {
-            int position = random.nextInt(individualList.size());
-            Individual randomIndividual = individualList.get(position);
-
-            if (IndividualType.COOPERATOR.equals(randomIndividual.getType())) {
-                randomIndividual.setType(IndividualType.DEFECTOR);
-                randomIndividual.setCosts(0);
-            } else {
-                i--;
+    private void removeIndividual(int position) {
+        if (individuals.isEmpty(position)) {
+            return;
+        }
+        int groupNo = individuals.getGroup(position);
+        IndividualType type = individuals.getType(position);
+        int costs = individuals.getCosts(position);
+        groupRegistry.remove(groupNo, position, type, costs);
+        individuals.remove(position);
+        markChanged(position);
+        emit(SimulationEventType.DIED, position, groupNo, groupNo, type, costs);
+    }
+
+    private void changeType(int position, IndividualType type, int costs) {
+        int groupNo = individuals.getGroup(position);
+        groupRegistry.changeType(groupNo, individuals.getType(position), individuals.getCosts(position), type, costs);
+        individuals.setType(position, type, costs);
+        markChanged(position);
+        emit(SimulationEventType.TYPE_CHANGED, position, groupNo, groupNo, type, costs);
+    }
+
+    private void emit(SimulationEventType eventType, int position, int groupNo, int sourceGroup,
+                      IndividualType type, int costs) {
+        if (recordingEvents && events.add(eventType, position, groupNo, sourceGroup, type, costs)) {
+            dispatchEvents(false);
+        }
+    }
+
+    private void dispatchEvents(boolean endOfCycle) {
+        dispatchEvents(eventListeners, endOfCycle);
+    }
+
+    private void dispatchEvents(SimulationEventListener[] listeners, boolean endOfCycle) {
+        events.setEndOfCycle(endOfCycle);
+        for (SimulationEventListener listener : listeners) {
+            listener.eventsOccurred(events);
+        }
+        events.clear(cycle);
+    }
+
+    private void dispatchReset() {
+        dispatchReset(eventListeners);
+    }
+
+    private void dispatchReset(SimulationEventListener[] listeners) {
+        if (listeners.length == 0) {
+            return;
+        }
+        events.clear(cycle);
+        events.setReset(true);
+        int cells = width * height;
+        for (int position = 0; position < cells; position++) {
+            if (individuals.isEmpty(position)) {
+                continue;
             }
+            int groupNo = individuals.getGroup(position);
+            if (events.add(SimulationEventType.BORN, position, groupNo, groupNo, individuals.getType(position),
+                    individuals.getCosts(position))) {
+                dispatchEvents(listeners, false);
+            }
+        }
+        dispatchEvents(listeners, true);
+    }
+
+    private long getGroupSize(int groupNo) {
+        return groupRegistry.getGroupSize(groupNo);
+    }
+
+    private void chooseRandomDefectors(long defectors) {
+        int[] positions = getAllPositions();
+        for (int i = 0; i < defectors && i < positions.length; i++) {
+            int index = i + random.nextInt(positions.length - i);
+            int position = positions[index];
+            positions[index] = positions[i];
+            positions[i] = position;
+            changeType(position, IndividualType.DEFECTOR, 0);
         }
     }
 
-    private List<Individual> getIndividualsList() {
-        return getAllIndividuals()
-                .collect(Collectors.toList());
+    private int[] getAllPositions() {
+        int[] positions = new int[(int) countAllIndividuals()];
+        int i = 0;
+        for (int k = 0; k < groupRegistry.count(); k++) {
+            Group group = groupRegistry.getGroupAt(k);
+            for (int j = 0; j < group.getSize(); j++) {
+                positions[i++] = group.getMember(j);
+            }
+        }
+        return positions;
     }
 
     public void nextStep() {
         cycle++;
+        metrics.startCycle();
+        recordingEvents = eventListeners.length > 0;
+        events.clear(cycle);
+        long time = metrics.start();
         selectAndTrySplitGroups();
+        time = metrics.lap(SimulationMetrics.SPLIT_NANOS, time);
         reproduceAllGroups();
-        if (getDistinctGroups().count() > maxNumberOfGroups) {
+        time = metrics.lap(SimulationMetrics.REPRODUCE_NANOS, time);
+        if (countAllGroups() > maxNumberOfGroups) {
             killRandomGroup();
         }
+        time = metrics.lap(SimulationMetrics.KILL_NANOS, time);
+        if (recordingEvents) {
+            dispatchEvents(true);
+            recordingEvents = false;
+        }
+        for (CycleListener listener : cycleListeners) {
+            listener.cycleCompleted(this);
+        }
+        metrics.lap(SimulationMetrics.LISTENER_NANOS, time);
+        metrics.endCycle();
     }
 
-    private void selectAndTrySplitGroups() {
-        getDistinctGroups()
-                .filter(groupNo -> getGroupSize(groupNo) >= maxPopulationPerGroup)
-                .forEach(this::tryToSplitGroup);
+    public void addEventListener(SimulationEventListener listener) {
+        eventListeners = Arrays.copyOf(eventListeners, eventListeners.length + 1);
+        eventListeners[eventListeners.length - 1] = listener;
+        dispatchReset(new SimulationEventListener[]{listener});
+    }
+
+    public void removeEventListener(SimulationEventListener listener) {
+        for (int i = 0; i < eventListeners.length; i++) {
+            if (eventListeners[i] == listener) {
+                SimulationEventListener[] listeners = new SimulationEventListener[eventListeners.length - 1];
+                System.arraycopy(eventListeners, 0, listeners, 0, i);
+                System.arraycopy(eventListeners, i + 1, listeners, i, listeners.length - i);
+                eventListeners = listeners;
+                return;
+            }
+        }
+    }
+
+    public SimulationMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void addCycleListener(CycleListener listener) {
+        cycleListeners = Arrays.copyOf(cycleListeners, cycleListeners.length + 1);
+        cycleListeners[cycleListeners.length - 1] = listener;
     }
 
-    private Stream<Integer> getDistinctGroups() {
-        return getAllIndividuals()
-                .map(Individual::getGroup)
-                .distinct();
+    public void removeCycleListener(CycleListener listener) {
+        for (int i = 0; i < cycleListeners.length; i++) {
+            if (cycleListeners[i] == listener) {
+                CycleListener[] listeners = new CycleListener[cycleListeners.length - 1];
+                System.arraycopy(cycleListeners, 0, listeners, 0, i);
+                System.arraycopy(cycleListeners, i + 1, listeners, i, listeners.length - i);
+                cycleListeners = listeners;
+                return;
+            }
+        }
+    }
+
+    private void selectAndTrySplitGroups() {
+        int count = groupRegistry.count();
+        groupNumbers = groupRegistry.getGroupNumbers(groupNumbers);
+        for (int i = 0; i < count; i++) {
+            int groupNo = groupNumbers[i];
+            if (getGroupSize(groupNo) >= maxPopulationPerGroup) {
+                useStream(SPLIT_STREAM, groupNo);
+                tryToSplitGroup(groupNo);
+            }
+        }
     }
 
-    private void tryToSplitGroup(Integer groupNo) {
+    private void tryToSplitGroup(int groupNo) {
         if (getGroupSize(groupNo) == 0) {
             return;
         }
         if (random.nextDouble() < chanceToSplittingGroup) {
             double chanceToKillingGroup = 0.5;
-            if (getDistinctGroups().count() >= maxNumberOfGroups
+            if (countAllGroups() >= maxNumberOfGroups
                     || random.nextDouble() < chanceToKillingGroup) {
                 killRandomGroupExceptFor(groupNo);
             }
@@ -216,218 +513,650 @@ public class GroupSelectionSimulator {
         }
     }
 
-    private void killRandomGroupExceptFor(Integer exceptGroup) {
-        List<Integer> groupList = getDistinctGroups()
-                .filter(group -> !group.equals(exceptGroup))
-                .collect(Collectors.toList());
-        if (groupList.size() <= 2) {
+    private void killRandomGroupExceptFor(int exceptGroup) {
+        int count = groupRegistry.count();
+        if (count - 1 <= 2) {
             return;
         }
-        int index = random.nextInt(groupList.size());
-        removeGroup(groupList.get(index));
+        int index = random.nextInt(count - 1);
+        if (groupRegistry.getGroupAt(index).getNumber() == exceptGroup) {
+            index = count - 1;
+        }
+        killGroup(groupRegistry.getGroupAt(index).getNumber());
     }
 
     private void killRandomGroup() {
-        getDistinctGroups().findAny().ifPresent(this::removeGroup);
+        int count = groupRegistry.count();
+        if (count > 0) {
+            random.setSeed(SeedSequence.derive(seed, KILL_STREAM, cycle));
+            killGroup(groupRegistry.getGroupAt(random.nextInt(count)).getNumber());
+        }
+    }
+
+    private void killGroup(int groupNo) {
+        removeGroup(groupNo);
+        emit(SimulationEventType.GROUP_KILLED, GridStore.EMPTY, groupNo, groupNo, null, 0);
+        metrics.add(SimulationMetrics.GROUP_KILLS, 1);
     }
 
     private void removeGroup(int groupNo) {
-        getGroup(groupNo).forEach(individual -> individuals.set(individual.getPosition(), Optional.empty()));
+        Group group = groupRegistry.get(groupNo);
+        int size = group == null ? 0 : group.getSize();
+        for (int i = 0; i < size; i++) {
+            int position = group.getMember(i);
+            IndividualType type = individuals.getType(position);
+            int costs = individuals.getCosts(position);
+            individuals.remove(position);
+            markChanged(position);
+            emit(SimulationEventType.DIED, position, groupNo, groupNo, type, costs);
+        }
+        if (group != null) {
+            groupRegistry.removeGroup(group);
+        }
+        metrics.add(SimulationMetrics.DEATHS, size);
         removeColorOfGroup(groupNo);
     }
 
     private void removeColorOfGroup(int groupNo) {
-        if (getGroup(groupNo).count() == 0) {
+        if (getGroupSize(groupNo) == 0) {
             colorsOfGroup.remove(groupNo);
         }
     }
 
-    private void splitGroup(Integer groupNo) {
-        List<Individual> groupList = getGroup(groupNo).collect(Collectors.toList());
-        int index1 = random.nextInt(groupList.size());
-        int index2 = random.nextInt(groupList.size() - 1);
+    private void splitGroup(int groupNo) {
+        Group group = groupRegistry.get(groupNo);
+        if (group.getSize() < 2) {
+            return;
+        }
+        long leaders = chooseNewGroupLeaders(group);
+        int leader1 = (int) (leaders >>> 32);
+        int leader2 = (int) leaders;
         int group1 = lastGroupNumber++;
         int group2 = lastGroupNumber++;
+        metrics.add(SimulationMetrics.SPLITS, 1);
+        emit(SimulationEventType.GROUP_SPLIT, GridStore.EMPTY, group1, groupNo, null, 0);
+        emit(SimulationEventType.GROUP_SPLIT, GridStore.EMPTY, group2, groupNo, null, 0);
 
-        for (; ; ) {
+        colorsOfGroup.put(group1, getRandomColor(group1));
+        colorsOfGroup.put(group2, getRandomColor(group2));
+        moveToGroup(leader1, group1);
+        moveToGroup(leader2, group2);
+        moveRestIndividualsToNewGroups(groupNo, leader1, group1, leader2, group2);
+    }
+
+    private long chooseNewGroupLeaders(Group group) {
+        int size = group.getSize();
+        for (int attempt = 0; attempt < SPLIT_LEADERS_ATTEMPTS; attempt++) {
+            int index1 = random.nextInt(size);
+            int index2 = random.nextInt(size - 1);
             if (index1 == index2) {
-                index2++;
+                index2 = size - 1;
             }
-            if (hasValidDistanceBetweenNewGroupLeaders(groupList.get(index1), groupList.get(index2))) {
-                break;
+            if (hasValidDistanceBetweenNewGroupLeaders(group, group.getMember(index1), group.getMember(index2))) {
+                return pack(group.getMember(index1), group.getMember(index2));
+            }
+        }
+        int offset = random.nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int first = group.getMember((offset + i) % size);
+            for (int j = 0; j < size; j++) {
+                int second = group.getMember(j);
+                if (first != second && hasValidDistanceBetweenNewGroupLeaders(group, first, second)) {
+                    return pack(first, second);
+                }
             }
-            index1 = random.nextInt(groupList.size());
-            index2 = random.nextInt(groupList.size() - 1);
         }
-        moveToGroup(groupList.get(index1).getPosition(), group1);
-        moveToGroup(groupList.get(index2).getPosition(), group2);
-        moveRestIndividualsToNewGroups(groupNo, group1, group2);
+        return pack(group.getMember(0), group.getMember(1));
+    }
+
+    private static long pack(int first, int second) {
+        return ((long) first << 32) | (second & 0xFFFFFFFFL);
     }
 
-    private boolean hasValidDistanceBetweenNewGroupLeaders(Individual first, Individual second) {
-        if (getGroupSize(first.getGroup()) < 10) {
+    private boolean hasValidDistanceBetweenNewGroupLeaders(Group group, int first, int second) {
+        if (group.getSize() < 10) {
             return true;
         }
-        return !getNeighboursPosition(first.getPosition(), INDIVIDUAL_RANGE).contains(second.getPosition());
+        return !lattice.isNeighbour(first, second, INDIVIDUAL_RANGE);
     }
 
     private void moveToGroup(int position, int groupNo) {
-        individuals.get(position)
-                .ifPresent(individual -> individual.setGroup(groupNo));
-        colorsOfGroup.put(groupNo, getRandomColor());
+        if (individuals.isEmpty(position)) {
+            return;
+        }
+        IndividualType type = individuals.getType(position);
+        int costs = individuals.getCosts(position);
+        int oldGroup = individuals.getGroup(position);
+        groupRegistry.remove(oldGroup, position, type, costs);
+        individuals.setGroup(position, groupNo);
+        groupRegistry.add(groupNo, position, type, costs);
+        markChanged(position);
+        emit(SimulationEventType.MOVED, position, groupNo, oldGroup, type, costs);
+    }
+
+    private void markChanged(int position) {
+        spawnSiteChanges.mark(position);
+        for (ChangeTracker tracker : changeTrackers) {
+            tracker.mark(position);
+        }
     }
 
-    private void moveRestIndividualsToNewGroups(Integer oldGroup, int newGroup1, int newGroup2) {
-        while (getGroupSize(oldGroup) > 0) {
-            boolean hasResultInFirstGroup = findAndMove(oldGroup, newGroup1);
-            boolean hasResultInSecondGroup = findAndMove(oldGroup, newGroup2);
-            if (!hasResultInFirstGroup && !hasResultInSecondGroup) {
-                break;
+    public void addChangeTracker(ChangeTracker tracker) {
+        if (tracker.getCapacity() != width * height) {
+            throw new IllegalArgumentException("Tracker capacity does not match the world size");
+        }
+        changeTrackers = Arrays.copyOf(changeTrackers, changeTrackers.length + 1);
+        changeTrackers[changeTrackers.length - 1] = tracker;
+        tracker.markAll();
+    }
+
+    public void removeChangeTracker(ChangeTracker tracker) {
+        for (int i = 0; i < changeTrackers.length; i++) {
+            if (changeTrackers[i] == tracker) {
+                ChangeTracker[] trackers = new ChangeTracker[changeTrackers.length - 1];
+                System.arraycopy(changeTrackers, 0, trackers, 0, i);
+                System.arraycopy(changeTrackers, i + 1, trackers, i, trackers.length - i);
+                changeTrackers = trackers;
+                return;
+            }
+        }
+    }
+
+    private void moveRestIndividualsToNewGroups(int oldGroup, int leader1, int newGroup1, int leader2,
+                                                int newGroup2) {
+        enqueueGroupNeighbours(leader1, oldGroup, FIRST_SPLIT_QUEUE);
+        enqueueGroupNeighbours(leader2, oldGroup, SECOND_SPLIT_QUEUE);
+        while (!firstSplitQueue.isEmpty() || !secondSplitQueue.isEmpty()) {
+            if (!firstSplitQueue.isEmpty()) {
+                tryMoveToNewGroup(firstSplitQueue.poll(), FIRST_SPLIT_QUEUE, oldGroup, newGroup1);
+            }
+            if (!secondSplitQueue.isEmpty()) {
+                tryMoveToNewGroup(secondSplitQueue.poll(), SECOND_SPLIT_QUEUE, oldGroup, newGroup2);
             }
         }
         removeGroup(oldGroup);
     }
 
-    private boolean findAndMove(int oldGroup, int newGroup) {
-        AtomicBoolean hasSomeoneChangedPosition = new AtomicBoolean(false);
-        getGroup(oldGroup).forEach(individual -> {
-            List<Individual> neighbours = getNearestNeighboursIn(individual.getPosition(), INDIVIDUAL_RANGE);
+    private void tryMoveToNewGroup(int position, int queue, int oldGroup, int newGroup) {
+        splitQueued[position] &= ~queue;
+        if (individuals.getGroup(position) == oldGroup && canJoinGroup(position, newGroup)) {
+            moveToGroup(position, newGroup);
+            enqueueGroupNeighbours(position, oldGroup, FIRST_SPLIT_QUEUE | SECOND_SPLIT_QUEUE);
+        }
+    }
 
-            if (countNeighboursGroups(neighbours) <= 2
-                    && countNeighboursGroups(neighbours, newGroup) >= 1) {
-                moveToGroup(individual.getPosition(), newGroup);
-                hasSomeoneChangedPosition.set(true);
+    private boolean canJoinGroup(int position, int newGroup) {
+        int first = GridStore.EMPTY;
+        int second = GridStore.EMPTY;
+        boolean hasNewGroup = false;
+        int size = lattice.collect(position, INDIVIDUAL_RANGE, neighbours);
+        for (int i = 0; i < size; i++) {
+            int groupNo = individuals.getGroup(neighbours[i]);
+            if (groupNo == GridStore.EMPTY || groupNo == first || groupNo == second) {
+                continue;
             }
-        });
-        return hasSomeoneChangedPosition.get();
+            if (first == GridStore.EMPTY) {
+                first = groupNo;
+            } else if (second == GridStore.EMPTY) {
+                second = groupNo;
+            } else {
+                return false;
+            }
+            hasNewGroup |= groupNo == newGroup;
+        }
+        return hasNewGroup;
     }
 
-    private long countNeighboursGroups(List<Individual> neighbours, int groupNo) {
-        return neighbours.stream()
-                .filter(individual1 -> individual1.getGroup() == groupNo)
-                .distinct()
-                .count();
+    private void enqueueGroupNeighbours(int position, int groupNo, int queues) {
+        int size = lattice.collect(position, INDIVIDUAL_RANGE, splitArea);
+        for (int i = 0; i < size; i++) {
+            int neighbour = splitArea[i];
+            if (individuals.getGroup(neighbour) != groupNo) {
+                continue;
+            }
+            int added = queues & ~splitQueued[neighbour];
+            splitQueued[neighbour] |= added;
+            if ((added & FIRST_SPLIT_QUEUE) != 0) {
+                firstSplitQueue.add(neighbour);
+            }
+            if ((added & SECOND_SPLIT_QUEUE) != 0) {
+                secondSplitQueue.add(neighbour);
+            }
+        }
     }
 
     private void killRandomIndividual(int groupNo) {
-        List<Individual> currentGroup = getGroup(groupNo)
-                .collect(Collectors.toList());
-        if (currentGroup.size() < MINIMUM_GROUP_SIZE) {
+        Group currentGroup = groupRegistry.get(groupNo);
+        if (currentGroup.getSize() < MINIMUM_GROUP_SIZE) {
             return;
         }
-        int index = random.nextInt(currentGroup.size());
-        int position = currentGroup.get(index).getPosition();
-        individuals.set(position, Optional.empty());
+        int index = random.nextInt(currentGroup.getSize());
+        removeIndividual(currentGroup.getMember(index));
+        metrics.add(SimulationMetrics.DEATHS, 1);
     }
 
     private void reproduceAllGroups() {
-        getDistinctGroups().forEach(groupNo -> {
-            List<Integer> emptyPositionList = getEmptyPositionForNewIndividuals(groupNo);
-            Collections.shuffle(emptyPositionList);
+        int count = groupRegistry.count();
+        groupNumbers = groupRegistry.getGroupNumbers(groupNumbers);
+        refreshSpawnSites();
+        economics.evaluate(groupRegistry, maxPopulationPerGroup);
+        prepareProposals(count);
+        reproducingGroups = count;
+        forEachChunk((count + GROUPS_PER_CHUNK - 1) / GROUPS_PER_CHUNK, proposeChunk);
+        int births = commitOffspring(count);
+        for (int i = 0; i < count; i++) {
+            if (proposedSites[i] != GridStore.EMPTY && !committed[i] && retryOffspring(groupNumbers[i], i)) {
+                births++;
+            }
+        }
+        metrics.add(SimulationMetrics.BIRTHS, births);
+    }
 
-            for (Integer position : emptyPositionList) {
-                if (createOffspring(groupNo, position)) {
-                    break;
-                }
+    private void prepareProposals(int groups) {
+        if (proposedSites.length < groups) {
+            int capacity = Math.max(groups, proposedSites.length * 2);
+            proposedSites = new int[capacity];
+            proposedTypes = new IndividualType[capacity];
+            proposedCosts = new int[capacity];
+            committed = new boolean[capacity];
+            stripeProposals = new int[capacity];
+        }
+    }
+
+    private void proposeOffspring(int chunk) {
+        int from = chunk * GROUPS_PER_CHUNK;
+        int to = Math.min(reproducingGroups, from + GROUPS_PER_CHUNK);
+        RandomSource source = workers[chunk].random;
+        for (int i = from; i < to; i++) {
+            int groupNo = groupNumbers[i];
+            int sites = birthSites.count(groupNo);
+            if (sites == 0) {
+                proposedSites[i] = GridStore.EMPTY;
+                continue;
             }
-        });
+            source.setSeed(SeedSequence.derive(seed, REPRODUCTION_STREAM, cycle, groupNo));
+            proposedSites[i] = birthSites.get(groupNo, source.nextInt(sites));
+            if (economics.isCooperative(i)) {
+                proposedTypes[i] = IndividualType.COOPERATOR;
+                proposedCosts[i] = getRandomCosts(source);
+            } else {
+                proposedTypes[i] = IndividualType.DEFECTOR;
+                proposedCosts[i] = 0;
+            }
+        }
     }
 
-    private boolean createOffspring(Integer groupNo, Integer position) {
-        List<Individual> neighbours = getNearestNeighboursIn(position, INDIVIDUAL_RANGE);
-        if (countNeighboursGroups(neighbours) == 1) {
-            long cooperators = countCooperators(groupNo);
-            IndividualType type = IndividualType.DEFECTOR;
-            int costs = 0;
-            if (cooperators > 0 && canCooperate(groupNo)) {
-                type = IndividualType.COOPERATOR;
-                costs = getRandomCosts();
+    private int commitOffspring(int count) {
+        sortProposalsByStripe(count);
+        int firstColor = (int) (cycle & 1);
+        commitStripes(firstColor, (pairedStripes - firstColor + 1) / 2);
+        commitStripes(1 - firstColor, (pairedStripes - (1 - firstColor) + 1) / 2);
+        if (pairedStripes < stripes) {
+            commitStripes(2, 1);
+        }
+        int births = 0;
+        for (int i = 0; i < count; i++) {
+            if (committed[i]) {
+                registerBirth(proposedSites[i], groupNumbers[i], proposedTypes[i], proposedCosts[i]);
+                births++;
             }
-            Individual newIndividual = new Individual(groupNo, position, costs, type);
-            individuals.set(position, Optional.of(newIndividual));
-            return true;
         }
-        return false;
+        return births;
     }
 
-    private boolean canCooperate(Integer groupNo) {
-        Integer lowestCost = getLowestCost(groupNo);
-        long totalCosts = lowestCost * (getGroupSize(groupNo) - 1);
-        if (totalCosts == 0) {
-            return true;
+    private void sortProposalsByStripe(int count) {
+        Arrays.fill(stripeStarts, 0);
+        for (int i = 0; i < count; i++) {
+            committed[i] = false;
+            if (proposedSites[i] != GridStore.EMPTY) {
+                stripeStarts[getStripe(proposedSites[i]) + 1]++;
+            }
+        }
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            stripeStarts[stripe + 1] += stripeStarts[stripe];
+            stripeCursors[stripe] = stripeStarts[stripe];
         }
-        long benefits = getSumOfCosts(groupNo);
-        double ratio = (double) (benefits - lowestCost) / totalCosts;
-        double criticalPoint = (double) maxPopulationPerGroup / getDistinctGroups().count() + 1;
+        for (int i = 0; i < count; i++) {
+            if (proposedSites[i] != GridStore.EMPTY) {
+                stripeProposals[stripeCursors[getStripe(proposedSites[i])]++] = i;
+            }
+        }
+    }
+
+    private int getStripe(int position) {
+        return Math.min(stripes - 1, position / width / rowsPerStripe);
+    }
 
-        return ratio > criticalPoint;
+    private void commitStripes(int color, int count) {
+        commitColor = color;
+        forEachChunk(count, commitChunk);
     }
 
-    private int getLowestCost(Integer groupNo) {
-        return getGroup(groupNo)
-                .filter(individual -> IndividualType.COOPERATOR.equals(individual.getType()))
-                .mapToInt(Individual::getCosts)
-                .min()
-                .orElse(0);
+    private void commitStripe(int chunk) {
+        int stripe = commitColor == 2 ? stripes - 1 : commitColor + 2 * chunk;
+        int[] area = workers[chunk].area;
+        for (int k = stripeStarts[stripe]; k < stripeStarts[stripe + 1]; k++) {
+            int index = stripeProposals[k];
+            int position = proposedSites[index];
+            if (findBirthSiteGroup(position, area) == groupNumbers[index]) {
+                individuals.set(position, groupNumbers[index], proposedTypes[index], proposedCosts[index]);
+                committed[index] = true;
+            }
+        }
     }
 
-    private int getSumOfCosts(Integer groupNo) {
-        return getGroup(groupNo)
-                .filter(individual -> IndividualType.COOPERATOR.equals(individual.getType()))
-                .mapToInt(Individual::getCosts)
-                .sum();
+    private boolean retryOffspring(int groupNo, int index) {
+        refreshSpawnSites();
+        int sites = birthSites.count(groupNo);
+        if (sites == 0) {
+            return false;
+        }
+        useStream(REPRODUCTION_RETRY_STREAM, groupNo);
+        placeIndividual(birthSites.get(groupNo, random.nextInt(sites)), groupNo, proposedTypes[index],
+                proposedCosts[index]);
+        return true;
+    }
+
+    private void forEachChunk(int chunks, IntConsumer action) {
+        if (workers.length < chunks) {
+            int created = workers.length;
+            workers = Arrays.copyOf(workers, Math.max(chunks, created * 2));
+            for (int i = created; i < workers.length; i++) {
+                workers[i] = new Worker(randomSourceFactory.apply(0));
+            }
+        }
+        if (!parallel || chunks <= 1) {
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                action.accept(chunk);
+            }
+            return;
+        }
+        for (int chunk = 1; chunk < chunks; chunk++) {
+            workers[chunk].fork(action, chunk);
+        }
+        try {
+            action.accept(0);
+        } finally {
+            for (int chunk = 1; chunk < chunks; chunk++) {
+                workers[chunk].quietlyJoin();
+            }
+        }
+        for (int chunk = 1; chunk < chunks; chunk++) {
+            workers[chunk].join();
+        }
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
     }
 
     private int getRandomCosts() {
-        return random.nextInt(MAX_COST - MIN_COST) + MIN_COST;
+        return getRandomCosts(random);
+    }
+
+    private static int getRandomCosts(RandomSource source) {
+        return source.nextInt(MAX_COST - MIN_COST) + MIN_COST;
+    }
+
+    private void refreshSpawnSites() {
+        int count = collectSpawnSiteChanges();
+        if (count == 0) {
+            return;
+        }
+        refreshCount = count;
+        forEachChunk((count + CELLS_PER_CHUNK - 1) / CELLS_PER_CHUNK, refreshChunk);
+        for (int i = 0; i < count; i++) {
+            birthSites.set(refreshPositions[i], refreshGroups[i]);
+        }
+    }
+
+    private void refreshSpawnSites(int chunk) {
+        int[] buffer = workers[chunk].area;
+        int end = Math.min(refreshCount, (chunk + 1) * CELLS_PER_CHUNK);
+        for (int i = chunk * CELLS_PER_CHUNK; i < end; i++) {
+            refreshGroups[i] = findBirthSiteGroup(refreshPositions[i], buffer);
+        }
+    }
+
+    private int collectSpawnSiteChanges() {
+        if (spawnSiteChanges.size() == 0) {
+            return 0;
+        }
+        int stamp = nextCandidateStamp();
+        int count = 0;
+        for (int i = 0; i < spawnSiteChanges.size(); i++) {
+            int position = spawnSiteChanges.get(i);
+            count = addRefreshPosition(position, stamp, count);
+            int size = lattice.collect(position, INDIVIDUAL_RANGE, changedArea);
+            for (int j = 0; j < size; j++) {
+                count = addRefreshPosition(changedArea[j], stamp, count);
+            }
+        }
+        spawnSiteChanges.clear();
+        return count;
+    }
+
+    private int addRefreshPosition(int position, int stamp, int count) {
+        if (candidateMarks[position] == stamp) {
+            return count;
+        }
+        candidateMarks[position] = stamp;
+        if (count == refreshPositions.length) {
+            refreshPositions = Arrays.copyOf(refreshPositions, count * 2);
+            refreshGroups = new int[count * 2];
+        }
+        refreshPositions[count] = position;
+        return count + 1;
+    }
+
+    private int findBirthSiteGroup(int position, int[] buffer) {
+        if (!individuals.isEmpty(position)) {
+            return GridStore.EMPTY;
+        }
+        int groupNo = GridStore.EMPTY;
+        boolean isAdjacent = false;
+        int size = lattice.collect(position, INDIVIDUAL_RANGE, buffer);
+        for (int i = 0; i < size; i++) {
+            int neighbourGroup = individuals.getGroup(buffer[i]);
+            if (neighbourGroup == GridStore.EMPTY) {
+                continue;
+            }
+            if (groupNo == GridStore.EMPTY) {
+                groupNo = neighbourGroup;
+            } else if (groupNo != neighbourGroup) {
+                return GridStore.EMPTY;
+            }
+            if (!isAdjacent && lattice.isNeighbour(position, buffer[i], GROUP_RANGE)) {
+                isAdjacent = true;
+            }
+        }
+        return isAdjacent ? groupNo : GridStore.EMPTY;
     }
 
-    private long countCooperators(Integer groupNo) {
-        return getGroup(groupNo)
-                .map(Individual::getType)
-                .filter(IndividualType.COOPERATOR::equals)
-                .count();
+    private int nextCandidateStamp() {
+        if (++candidateStamp == 0) {
+            Arrays.fill(candidateMarks, 0);
+            candidateStamp = 1;
+        }
+        return candidateStamp;
     }
 
-    private List<Integer> getEmptyPositionForNewIndividuals(Integer groupNo) {
-        return getGroup(groupNo).map(Individual::getPosition)
-                .flatMap(position -> getNeighboursPosition(position, GROUP_RANGE).stream())
-                .distinct()
-                .collect(Collectors.toList());
+    public long countAllIndividuals() {
+        return groupRegistry.getPopulation();
     }
 
+    @Override
     public long countAllIndividuals(IndividualType type) {
-        return getAllIndividuals()
-                .map(Individual::getType)
-                .filter(type::equals)
-                .count();
+        return IndividualType.COOPERATOR.equals(type) ? groupRegistry.getCooperators() : groupRegistry.getDefectors();
     }
 
+    public long getTotalCosts() {
+        return groupRegistry.getTotalCosts();
+    }
+
+    @Override
     public long countAllGroups() {
-        return getDistinctGroups().count();
+        return groupRegistry.count();
     }
 
     public Optional<Individual> getIndividual(int i) {
-        return individuals.get(i);
+        if (individuals.isEmpty(i)) {
+            return Optional.empty();
+        }
+        return Optional.of(new Individual(individuals.getGroup(i), i, individuals.getCosts(i), individuals.getType(i)));
+    }
+
+    @Override
+    public boolean isOccupied(int position) {
+        return !individuals.isEmpty(position);
+    }
+
+    @Override
+    public int getGroupAt(int position) {
+        return individuals.getGroup(position);
+    }
+
+    @Override
+    public IndividualType getTypeAt(int position) {
+        return individuals.getType(position);
+    }
+
+    public int getCostsAt(int position) {
+        return individuals.getCosts(position);
+    }
+
+    public long getSeed() {
+        return seed;
     }
 
+    @Override
     public long getCycle() {
         return cycle;
     }
 
+    public int getMaxNumberOfGroups() {
+        return maxNumberOfGroups;
+    }
+
     public void setMaxNumberOfGroups(int maxNumberOfGroups) {
         this.maxNumberOfGroups = maxNumberOfGroups;
     }
 
+    public long getMaxPopulationPerGroup() {
+        return maxPopulationPerGroup;
+    }
+
     public void setMaxPopulationPerGroup(long maxPopulationPerGroup) {
         this.maxPopulationPerGroup = maxPopulationPerGroup;
     }
 
+    public double getChanceToSplittingGroup() {
+        return chanceToSplittingGroup;
+    }
+
     public void setChanceToSplittingGroup(double chanceToSplittingGroup) {
         this.chanceToSplittingGroup = chanceToSplittingGroup;
     }
 
+    @Override
     public int getColorsOfGroup(int group) {
-        return colorsOfGroup.get(group);
+        return colorsOfGroup.getOrDefault(group, 0);
+    }
+
+    public int getLastGroupNumber() {
+        return lastGroupNumber;
+    }
+
+    GridStore getGridStore() {
+        return individuals;
+    }
+
+    GroupRegistry getGroupRegistry() {
+        return groupRegistry;
+    }
+
+    IntIntMap getColorsOfGroups() {
+        return colorsOfGroup;
+    }
+
+    SpawnSites getBirthSites() {
+        return birthSites;
+    }
+
+    ChangeTracker getSpawnSiteChanges() {
+        return spawnSiteChanges;
+    }
+
+    void restore(long seed, long cycle, int lastGroupNumber) {
+        cleanUp();
+        this.seed = seed;
+        this.cycle = cycle;
+        this.lastGroupNumber = lastGroupNumber;
+    }
+
+    void restoreIndividual(Group group, int position, IndividualType type, int costs) {
+        individuals.set(position, group.getNumber(), type, costs);
+        groupRegistry.add(group, position, type, costs);
+    }
+
+    void finishRestore() {
+        dispatchReset();
+    }
+
+    SimulationSnapshot createSnapshot() {
+        return new SimulationSnapshot(width, height, lattice);
+    }
+
+    void copyTo(SimulationSnapshot snapshot) {
+        snapshot.copyCells(individuals);
+        copyStateTo(snapshot);
+    }
+
+    void copyCellsTo(SimulationSnapshot snapshot, ChangeTracker changes) {
+        for (int i = 0; i < changes.size(); i++) {
+            snapshot.copyCell(individuals, changes.get(i));
+        }
+    }
+
+    void copyCellsTo(SimulationSnapshot snapshot, int[] positions, int count) {
+        for (int i = 0; i < count; i++) {
+            snapshot.copyCell(individuals, positions[i]);
+        }
+    }
+
+    void copyStateTo(SimulationSnapshot snapshot) {
+        snapshot.copyState(colorsOfGroup, cycle,
+                countAllIndividuals(IndividualType.COOPERATOR),
+                countAllIndividuals(IndividualType.DEFECTOR),
+                countAllGroups());
+    }
+
+    private static final class Worker extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RandomSource random;
+        private final int[] area = new int[Lattice.getMaxSize(INDIVIDUAL_RANGE)];
+        private IntConsumer action;
+        private int chunk;
+
+        private Worker(RandomSource random) {
+            this.random = random;
+        }
+
+        private void fork(IntConsumer action, int chunk) {
+            reinitialize();
+            this.action = action;
+            this.chunk = chunk;
+            fork();
+        }
+
+        @Override
+        protected void compute() {
+            action.accept(chunk);
+        }
     }
 }
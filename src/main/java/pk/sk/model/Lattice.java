@@ -0,0 +1,190 @@
+package pk.sk.model;
+
+import java.util.function.IntConsumer;
+
+public class Lattice {
+    private final int width;
+    private final int height;
+    private final int maxRange;
+    private final Topology topology;
+    private final boolean toroidal;
+    private final int[][][] xOffsets;
+    private final int[][][] yOffsets;
+    private final int[][][] offsets;
+    private final int[] columns;
+    private final int[] validColumns;
+    private final int[] rows;
+    private final int[] validRows;
+
+    public Lattice(int width, int height, int maxRange) {
+        this(width, height, maxRange, Topology.MOORE, false);
+    }
+
+    public Lattice(int width, int height, int maxRange, Topology topology, boolean toroidal) {
+        if (toroidal && (width <= 2 * maxRange || height <= 2 * maxRange)) {
+            throw new IllegalArgumentException("A toroidal lattice must be wider and higher than " + 2 * maxRange);
+        }
+        if (toroidal && topology == Topology.HEXAGONAL && height % 2 != 0) {
+            throw new IllegalArgumentException("A toroidal hexagonal lattice needs an even height");
+        }
+        this.width = width;
+        this.height = height;
+        this.maxRange = maxRange;
+        this.topology = topology;
+        this.toroidal = toroidal;
+        this.xOffsets = new int[maxRange + 1][2][];
+        this.yOffsets = new int[maxRange + 1][2][];
+        this.offsets = new int[maxRange + 1][2][];
+        for (int range = 0; range <= maxRange; range++) {
+            createOffsets(range, 0);
+            createOffsets(range, 1);
+        }
+        this.columns = new int[width + 2 * maxRange];
+        this.validColumns = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            int x = i - maxRange;
+            boolean valid = toroidal || (x >= 0 && x < width);
+            columns[i] = valid ? Math.floorMod(x, width) : 0;
+            validColumns[i] = valid ? 1 : 0;
+        }
+        this.rows = new int[height + 2 * maxRange];
+        this.validRows = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            int y = i - maxRange;
+            boolean valid = toroidal || (y >= 0 && y < height);
+            rows[i] = valid ? Math.floorMod(y, height) * width : 0;
+            validRows[i] = valid ? 1 : 0;
+        }
+    }
+
+    private void createOffsets(int range, int parity) {
+        int size = 0;
+        for (int i = -range; i <= range; i++) {
+            for (int j = -range; j <= range; j++) {
+                if (isOffset(j, i, range, parity)) {
+                    size++;
+                }
+            }
+        }
+        xOffsets[range][parity] = new int[size];
+        yOffsets[range][parity] = new int[size];
+        offsets[range][parity] = new int[size];
+        int k = 0;
+        for (int i = -range; i <= range; i++) {
+            for (int j = -range; j <= range; j++) {
+                if (!isOffset(j, i, range, parity)) {
+                    continue;
+                }
+                xOffsets[range][parity][k] = j;
+                yOffsets[range][parity][k] = i;
+                offsets[range][parity][k] = i * width + j;
+                k++;
+            }
+        }
+    }
+
+    private boolean isOffset(int dx, int dy, int range, int parity) {
+        return (dx != 0 || dy != 0) && topology.distance(dx, dy, parity) <= range;
+    }
+
+    public static int getMaxSize(int range) {
+        return (2 * range + 1) * (2 * range + 1) - 1;
+    }
+
+    public int getSize(int range) {
+        return offsets[range][0].length;
+    }
+
+    public int getMaxRange() {
+        return maxRange;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Topology getTopology() {
+        return topology;
+    }
+
+    public boolean isToroidal() {
+        return toroidal;
+    }
+
+    public int collect(int index, int range, int[] buffer) {
+        int x = index % width;
+        int y = index / width;
+        int parity = y & 1;
+        int[] offset = offsets[range][parity];
+        if (isInterior(x, y, range)) {
+            for (int k = 0; k < offset.length; k++) {
+                buffer[k] = index + offset[k];
+            }
+            return offset.length;
+        }
+        int[] dx = xOffsets[range][parity];
+        int[] dy = yOffsets[range][parity];
+        int column = x + maxRange;
+        int row = y + maxRange;
+        int count = 0;
+        for (int k = 0; k < offset.length; k++) {
+            int i = column + dx[k];
+            int j = row + dy[k];
+            buffer[count] = rows[j] + columns[i];
+            count += validColumns[i] & validRows[j];
+        }
+        return count;
+    }
+
+    public void forEach(int index, int range, IntConsumer consumer) {
+        int x = index % width;
+        int y = index / width;
+        int parity = y & 1;
+        int[] offset = offsets[range][parity];
+        if (isInterior(x, y, range)) {
+            for (int k = 0; k < offset.length; k++) {
+                consumer.accept(index + offset[k]);
+            }
+            return;
+        }
+        int[] dx = xOffsets[range][parity];
+        int[] dy = yOffsets[range][parity];
+        int column = x + maxRange;
+        int row = y + maxRange;
+        for (int k = 0; k < offset.length; k++) {
+            int i = column + dx[k];
+            int j = row + dy[k];
+            if ((validColumns[i] & validRows[j]) != 0) {
+                consumer.accept(rows[j] + columns[i]);
+            }
+        }
+    }
+
+    public boolean isNeighbour(int index, int other, int range) {
+        if (index == other) {
+            return false;
+        }
+        int y = index / width;
+        int dx = other % width - index % width;
+        int dy = other / width - y;
+        if (!toroidal) {
+            return topology.distance(dx, dy, y & 1) <= range;
+        }
+        for (int i = -1; i <= 1; i++) {
+            for (int j = -1; j <= 1; j++) {
+                if (topology.distance(dx + j * width, dy + i * height, y & 1) <= range) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isInterior(int x, int y, int range) {
+        return x >= range && x < width - range && y >= range && y < height - range;
+    }
+}
@@ -0,0 +1,87 @@
+package pk.sk.model;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class MetricsReporter implements Closeable {
+    private final SimulationMetrics metrics;
+    private final PrintStream out;
+    private final ScheduledExecutorService scheduler;
+    private long cycles;
+    private long splitNanos;
+    private long killNanos;
+    private long reproduceNanos;
+    private long renderNanos;
+    private long renders;
+    private long births;
+    private long deaths;
+    private long splits;
+    private long groupKills;
+    private long allocatedBytes;
+
+    public MetricsReporter(SimulationMetrics metrics, PrintStream out, long period, TimeUnit unit) {
+        this.metrics = metrics;
+        this.out = out;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, period, period, unit);
+    }
+
+    public synchronized void report() {
+        long currentCycles = metrics.getCycles();
+        long currentSplitNanos = metrics.getSplitNanos();
+        long currentKillNanos = metrics.getKillNanos();
+        long currentReproduceNanos = metrics.getReproduceNanos();
+        long currentRenderNanos = metrics.getRenderNanos();
+        long currentRenders = metrics.getRenders();
+        long currentBirths = metrics.getBirths();
+        long currentDeaths = metrics.getDeaths();
+        long currentSplits = metrics.getSplits();
+        long currentGroupKills = metrics.getGroupKills();
+        long currentAllocatedBytes = metrics.getAllocatedBytes();
+
+        long cycleDelta = currentCycles - cycles;
+        out.println(String.format(Locale.ROOT,
+                "cycles=%d split=%.3fms kill=%.3fms reproduce=%.3fms render=%.3fms births=%d deaths=%d"
+                        + " splits=%d groupKills=%d placementAborts=%d allocated=%dB/cycle",
+                cycleDelta,
+                perEvent(currentSplitNanos - splitNanos, cycleDelta),
+                perEvent(currentKillNanos - killNanos, cycleDelta),
+                perEvent(currentReproduceNanos - reproduceNanos, cycleDelta),
+                perEvent(currentRenderNanos - renderNanos, currentRenders - renders),
+                currentBirths - births,
+                currentDeaths - deaths,
+                currentSplits - splits,
+                currentGroupKills - groupKills,
+                metrics.getPlacementAborts(),
+                cycleDelta == 0 ? 0 : (currentAllocatedBytes - allocatedBytes) / cycleDelta));
+
+        cycles = currentCycles;
+        splitNanos = currentSplitNanos;
+        killNanos = currentKillNanos;
+        reproduceNanos = currentReproduceNanos;
+        renderNanos = currentRenderNanos;
+        renders = currentRenders;
+        births = currentBirths;
+        deaths = currentDeaths;
+        splits = currentSplits;
+        groupKills = currentGroupKills;
+        allocatedBytes = currentAllocatedBytes;
+    }
+
+    private static double perEvent(long nanos, long events) {
+        return events == 0 ? 0 : nanos / 1e6 / events;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
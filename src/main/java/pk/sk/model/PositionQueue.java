@@ -0,0 +1,35 @@
+package pk.sk.model;
+
+import java.util.Arrays;
+
+class PositionQueue {
+    private int[] positions = new int[64];
+    private int head;
+    private int tail;
+
+    void add(int position) {
+        if (tail == positions.length) {
+            if (head > 0) {
+                System.arraycopy(positions, head, positions, 0, tail - head);
+                tail -= head;
+                head = 0;
+            } else {
+                positions = Arrays.copyOf(positions, positions.length * 2);
+            }
+        }
+        positions[tail++] = position;
+    }
+
+    int poll() {
+        int position = positions[head++];
+        if (head == tail) {
+            head = 0;
+            tail = 0;
+        }
+        return position;
+    }
+
+    boolean isEmpty() {
+        return head == tail;
+    }
+}
@@ -0,0 +1,93 @@
+package pk.sk.model;
+
+import java.util.Arrays;
+
+public class PrimitiveGridStore implements GridStore {
+    private static final IndividualType[] TYPES = IndividualType.values();
+
+    private final int[] group;
+    private final byte[] type;
+    private final short[] costs;
+
+    public PrimitiveGridStore(int size) {
+        group = new int[size];
+        type = new byte[size];
+        costs = new short[size];
+        clear();
+    }
+
+    @Override
+    public int size() {
+        return group.length;
+    }
+
+    @Override
+    public boolean isEmpty(int position) {
+        return group[position] == EMPTY;
+    }
+
+    @Override
+    public int getGroup(int position) {
+        return group[position];
+    }
+
+    @Override
+    public IndividualType getType(int position) {
+        return TYPES[type[position]];
+    }
+
+    @Override
+    public int getCosts(int position) {
+        return costs[position];
+    }
+
+    @Override
+    public void set(int position, int group, IndividualType type, int costs) {
+        this.group[position] = group;
+        this.type[position] = (byte) type.ordinal();
+        this.costs[position] = (short) costs;
+    }
+
+    @Override
+    public void setGroup(int position, int group) {
+        this.group[position] = group;
+    }
+
+    @Override
+    public void setType(int position, IndividualType type, int costs) {
+        this.type[position] = (byte) type.ordinal();
+        this.costs[position] = (short) costs;
+    }
+
+    @Override
+    public void remove(int position) {
+        group[position] = EMPTY;
+        type[position] = 0;
+        costs[position] = 0;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(group, EMPTY);
+        Arrays.fill(type, (byte) 0);
+        Arrays.fill(costs, (short) 0);
+    }
+
+    @Override
+    public void copyFrom(GridStore source) {
+        if (source instanceof PrimitiveGridStore) {
+            PrimitiveGridStore other = (PrimitiveGridStore) source;
+            System.arraycopy(other.group, 0, group, 0, group.length);
+            System.arraycopy(other.type, 0, type, 0, type.length);
+            System.arraycopy(other.costs, 0, costs, 0, costs.length);
+            return;
+        }
+        for (int position = 0; position < group.length; position++) {
+            if (source.isEmpty(position)) {
+                remove(position);
+            } else {
+                set(position, source.getGroup(position), source.getType(position), source.getCosts(position));
+            }
+        }
+    }
+}
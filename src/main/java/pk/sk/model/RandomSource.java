@@ -0,0 +1,11 @@
+package pk.sk.model;
+
+public interface RandomSource {
+    void setSeed(long seed);
+
+    long nextLong();
+
+    int nextInt(int bound);
+
+    double nextDouble();
+}
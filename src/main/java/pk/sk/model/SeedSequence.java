@@ -0,0 +1,30 @@
+package pk.sk.model;
+
+public final class SeedSequence {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private SeedSequence() {
+    }
+
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static long derive(long seed, long key) {
+        return mix(seed + GOLDEN_GAMMA * (key + 1));
+    }
+
+    public static long derive(long seed, long key1, long key2) {
+        return derive(derive(seed, key1), key2);
+    }
+
+    public static long derive(long seed, long key1, long key2, long key3) {
+        return derive(derive(derive(seed, key1), key2), key3);
+    }
+
+    public static long randomSeed() {
+        return mix(System.nanoTime() ^ System.identityHashCode(new Object()) * GOLDEN_GAMMA);
+    }
+}
@@ -0,0 +1,99 @@
+package pk.sk.model;
+
+public class SimulationEventBatch {
+    static final int DEFAULT_CAPACITY = 1 << 14;
+    private static final SimulationEventType[] EVENT_TYPES = SimulationEventType.values();
+    private static final IndividualType[] INDIVIDUAL_TYPES = IndividualType.values();
+    private static final byte NO_INDIVIDUAL = -1;
+
+    private final byte[] eventTypes;
+    private final int[] positions;
+    private final int[] groups;
+    private final int[] sourceGroups;
+    private final byte[] individualTypes;
+    private final byte[] costs;
+    private long cycle;
+    private int size;
+    private boolean reset;
+    private boolean endOfCycle;
+
+    SimulationEventBatch(int capacity) {
+        this.eventTypes = new byte[capacity];
+        this.positions = new int[capacity];
+        this.groups = new int[capacity];
+        this.sourceGroups = new int[capacity];
+        this.individualTypes = new byte[capacity];
+        this.costs = new byte[capacity];
+    }
+
+    void clear(long cycle) {
+        this.cycle = cycle;
+        this.size = 0;
+        this.reset = false;
+        this.endOfCycle = false;
+    }
+
+    boolean add(SimulationEventType eventType, int position, int group, int sourceGroup, IndividualType type,
+                int costs) {
+        eventTypes[size] = (byte) eventType.ordinal();
+        positions[size] = position;
+        groups[size] = group;
+        sourceGroups[size] = sourceGroup;
+        individualTypes[size] = type == null ? NO_INDIVIDUAL : (byte) type.ordinal();
+        this.costs[size] = (byte) costs;
+        return ++size == eventTypes.length;
+    }
+
+    void setReset(boolean reset) {
+        this.reset = reset;
+    }
+
+    void setEndOfCycle(boolean endOfCycle) {
+        this.endOfCycle = endOfCycle;
+    }
+
+    public long getCycle() {
+        return cycle;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return eventTypes.length;
+    }
+
+    public boolean isReset() {
+        return reset;
+    }
+
+    public boolean isEndOfCycle() {
+        return endOfCycle;
+    }
+
+    public SimulationEventType getType(int index) {
+        return EVENT_TYPES[eventTypes[index]];
+    }
+
+    public int getPosition(int index) {
+        return positions[index];
+    }
+
+    public int getGroup(int index) {
+        return groups[index];
+    }
+
+    public int getSourceGroup(int index) {
+        return sourceGroups[index];
+    }
+
+    public IndividualType getIndividualType(int index) {
+        byte type = individualTypes[index];
+        return type == NO_INDIVIDUAL ? null : INDIVIDUAL_TYPES[type];
+    }
+
+    public int getCosts(int index) {
+        return costs[index];
+    }
+}
@@ -0,0 +1,5 @@
+package pk.sk.model;
+
+public interface SimulationEventListener {
+    void eventsOccurred(SimulationEventBatch batch);
+}
@@ -0,0 +1,5 @@
+package pk.sk.model;
+
+public enum SimulationEventType {
+    BORN, DIED, MOVED, TYPE_CHANGED, GROUP_SPLIT, GROUP_KILLED
+}
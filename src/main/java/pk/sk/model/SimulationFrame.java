@@ -0,0 +1,23 @@
+package pk.sk.model;
+
+public interface SimulationFrame {
+    int getWidth();
+
+    int getHeight();
+
+    Lattice getLattice();
+
+    long getCycle();
+
+    boolean isOccupied(int position);
+
+    int getGroupAt(int position);
+
+    IndividualType getTypeAt(int position);
+
+    int getColorsOfGroup(int group);
+
+    long countAllIndividuals(IndividualType type);
+
+    long countAllGroups();
+}
@@ -0,0 +1,206 @@
+package pk.sk.model;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class SimulationMetrics implements SimulationMetricsMBean {
+    static final int SPLIT_NANOS = 0;
+    static final int KILL_NANOS = 1;
+    static final int REPRODUCE_NANOS = 2;
+    static final int LISTENER_NANOS = 3;
+    static final int CYCLES = 4;
+    static final int BIRTHS = 5;
+    static final int DEATHS = 6;
+    static final int SPLITS = 7;
+    static final int GROUP_KILLS = 8;
+    static final int PLACEMENT_ABORTS = 9;
+    static final int ALLOCATED_BYTES = 10;
+    private static final int RENDER_NANOS = 11;
+    private static final int RENDERS = 12;
+    private static final int COUNTERS = 13;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final long[] pending = new long[COUNTERS];
+    private final AtomicLongArray published = new AtomicLongArray(COUNTERS);
+    private final AtomicLongArray baseline = new AtomicLongArray(COUNTERS);
+    private volatile boolean enabled;
+    private long allocationStart = -1;
+    private ObjectName objectName;
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    long lap(int timer, long since) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        pending[timer] += now - since;
+        return now;
+    }
+
+    void add(int counter, long delta) {
+        pending[counter] += delta;
+    }
+
+    void startCycle() {
+        allocationStart = enabled ? getAllocatedBytesOfCurrentThread() : -1;
+    }
+
+    void endCycle() {
+        if (!enabled) {
+            Arrays.fill(pending, 0);
+            return;
+        }
+        pending[CYCLES]++;
+        if (allocationStart >= 0) {
+            long allocated = getAllocatedBytesOfCurrentThread();
+            if (allocated >= 0) {
+                pending[ALLOCATED_BYTES] += allocated - allocationStart;
+            }
+        }
+        flush();
+    }
+
+    void flush() {
+        if (enabled) {
+            for (int i = 0; i < COUNTERS; i++) {
+                if (pending[i] != 0) {
+                    published.lazySet(i, published.get(i) + pending[i]);
+                }
+            }
+        }
+        Arrays.fill(pending, 0);
+    }
+
+    public void recordRender(long nanos) {
+        if (enabled) {
+            published.lazySet(RENDER_NANOS, published.get(RENDER_NANOS) + nanos);
+            published.lazySet(RENDERS, published.get(RENDERS) + 1);
+        }
+    }
+
+    private static long getAllocatedBytesOfCurrentThread() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    public synchronized void registerMBean(String name) throws JMException {
+        unregisterMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName candidate = new ObjectName("pk.sk:type=SimulationMetrics,name=" + ObjectName.quote(name));
+        try {
+            server.registerMBean(this, candidate);
+        } catch (InstanceAlreadyExistsException e) {
+            server.unregisterMBean(candidate);
+            server.registerMBean(this, candidate);
+        }
+        objectName = candidate;
+    }
+
+    public synchronized void unregisterMBean() throws JMException {
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    @Override
+    public long getCycles() {
+        return get(CYCLES);
+    }
+
+    @Override
+    public long getSplitNanos() {
+        return get(SPLIT_NANOS);
+    }
+
+    @Override
+    public long getKillNanos() {
+        return get(KILL_NANOS);
+    }
+
+    @Override
+    public long getReproduceNanos() {
+        return get(REPRODUCE_NANOS);
+    }
+
+    @Override
+    public long getListenerNanos() {
+        return get(LISTENER_NANOS);
+    }
+
+    @Override
+    public long getRenderNanos() {
+        return get(RENDER_NANOS);
+    }
+
+    @Override
+    public long getRenders() {
+        return get(RENDERS);
+    }
+
+    @Override
+    public long getBirths() {
+        return get(BIRTHS);
+    }
+
+    @Override
+    public long getDeaths() {
+        return get(DEATHS);
+    }
+
+    @Override
+    public long getSplits() {
+        return get(SPLITS);
+    }
+
+    @Override
+    public long getGroupKills() {
+        return get(GROUP_KILLS);
+    }
+
+    @Override
+    public long getPlacementAborts() {
+        return get(PLACEMENT_ABORTS);
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return get(ALLOCATED_BYTES);
+    }
+
+    private long get(int counter) {
+        return published.get(counter) - baseline.get(counter);
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < COUNTERS; i++) {
+            baseline.set(i, published.get(i));
+        }
+    }
+}
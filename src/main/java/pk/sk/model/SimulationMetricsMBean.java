@@ -0,0 +1,35 @@
+package pk.sk.model;
+
+public interface SimulationMetricsMBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getCycles();
+
+    long getSplitNanos();
+
+    long getKillNanos();
+
+    long getReproduceNanos();
+
+    long getListenerNanos();
+
+    long getRenderNanos();
+
+    long getRenders();
+
+    long getBirths();
+
+    long getDeaths();
+
+    long getSplits();
+
+    long getGroupKills();
+
+    long getPlacementAborts();
+
+    long getAllocatedBytes();
+
+    void reset();
+}
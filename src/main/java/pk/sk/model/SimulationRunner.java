@@ -0,0 +1,271 @@
+package pk.sk.model;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class SimulationRunner {
+    public enum State {
+        IDLE, RUNNING, PAUSED, STOPPED, FAILED
+    }
+
+    private static volatile Executor defaultExecutor;
+
+    private final GroupSelectionSimulator simulator;
+    private final Executor executor;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private State state = State.IDLE;
+    private long tickNanos;
+    private int pendingSteps;
+    private boolean working;
+    private Runnable idleHandler = () -> {
+    };
+    private Throwable failure;
+
+    public SimulationRunner(GroupSelectionSimulator simulator) {
+        this(simulator, getDefaultExecutor());
+    }
+
+    public SimulationRunner(GroupSelectionSimulator simulator, Executor executor) {
+        this.simulator = simulator;
+        this.executor = executor;
+    }
+
+    public static Executor getDefaultExecutor() {
+        Executor executor = defaultExecutor;
+        if (executor == null) {
+            synchronized (SimulationRunner.class) {
+                if (defaultExecutor == null) {
+                    defaultExecutor = createExecutor();
+                }
+                executor = defaultExecutor;
+            }
+        }
+        return executor;
+    }
+
+    public static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "simulation-runner");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public GroupSelectionSimulator getSimulator() {
+        return simulator;
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Throwable getFailure() {
+        lock.lock();
+        try {
+            return failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setIdleHandler(Runnable idleHandler) {
+        lock.lock();
+        try {
+            this.idleHandler = idleHandler;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setTickInterval(long interval, TimeUnit unit) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("The tick interval must not be negative");
+        }
+        lock.lock();
+        try {
+            tickNanos = unit.toNanos(interval);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void start() {
+        lock.lock();
+        try {
+            checkNotTerminated();
+            state = State.RUNNING;
+            wake();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void pause() {
+        lock.lock();
+        try {
+            if (state == State.RUNNING) {
+                state = State.PAUSED;
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void step() {
+        lock.lock();
+        try {
+            checkNotTerminated();
+            if (state == State.RUNNING) {
+                return;
+            }
+            state = State.PAUSED;
+            pendingSteps++;
+            wake();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void stop() {
+        lock.lock();
+        try {
+            if (state != State.FAILED) {
+                state = State.STOPPED;
+            }
+            pendingSteps = 0;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (working) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = changed.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkNotTerminated() {
+        if (state == State.STOPPED || state == State.FAILED) {
+            throw new IllegalStateException("The simulation runner is " + state.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private void wake() {
+        changed.signalAll();
+        if (working) {
+            return;
+        }
+        working = true;
+        try {
+            executor.execute(this::work);
+        } catch (RejectedExecutionException e) {
+            working = false;
+            throw e;
+        }
+    }
+
+    private boolean hasWork() {
+        return state == State.RUNNING || (state == State.PAUSED && pendingSteps > 0);
+    }
+
+    private void work() {
+        while (true) {
+            runSteps();
+            Runnable handler;
+            lock.lock();
+            try {
+                handler = idleHandler;
+            } finally {
+                lock.unlock();
+            }
+            handler.run();
+            lock.lock();
+            try {
+                if (!hasWork()) {
+                    working = false;
+                    changed.signalAll();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void runSteps() {
+        long scheduled = Long.MIN_VALUE;
+        while (true) {
+            lock.lock();
+            try {
+                if (state == State.RUNNING) {
+                    long now = System.nanoTime();
+                    if (scheduled == Long.MIN_VALUE) {
+                        scheduled = now - tickNanos;
+                    }
+                    long due = scheduled + tickNanos;
+                    if (due - now > 0) {
+                        changed.awaitNanos(due - now);
+                        continue;
+                    }
+                    scheduled = now - due > tickNanos ? now : due;
+                } else if (state == State.PAUSED && pendingSteps > 0) {
+                    pendingSteps--;
+                    scheduled = Long.MIN_VALUE;
+                } else {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                state = State.STOPPED;
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                simulator.nextStep();
+            } catch (RuntimeException | Error e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    state = State.FAILED;
+                    pendingSteps = 0;
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+        }
+    }
+}
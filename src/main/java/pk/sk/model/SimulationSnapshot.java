@@ -0,0 +1,135 @@
+package pk.sk.model;
+
+public class SimulationSnapshot implements SimulationFrame {
+    private final int width;
+    private final int height;
+    private final Lattice lattice;
+    private final GridStore individuals;
+    private final IntIntMap colorsOfGroup = new IntIntMap();
+    private long cycle;
+    private long cooperators;
+    private long defectors;
+    private long groups;
+    private long generation = -1;
+    private long epoch;
+    private int[] changedPositions = new int[64];
+    private int changedCount;
+    private boolean allChanged = true;
+
+    SimulationSnapshot(int width, int height, Lattice lattice) {
+        this.width = width;
+        this.height = height;
+        this.lattice = lattice;
+        this.individuals = new PrimitiveGridStore(width * height);
+    }
+
+    void copyCells(GridStore source) {
+        individuals.copyFrom(source);
+    }
+
+    void copyCell(GridStore source, int position) {
+        if (source.isEmpty(position)) {
+            individuals.remove(position);
+        } else {
+            individuals.set(position, source.getGroup(position), source.getType(position), source.getCosts(position));
+        }
+    }
+
+    void copyState(IntIntMap colors, long cycle, long cooperators, long defectors, long groups) {
+        colorsOfGroup.copyFrom(colors);
+        this.cycle = cycle;
+        this.cooperators = cooperators;
+        this.defectors = defectors;
+        this.groups = groups;
+    }
+
+    void setChanges(long generation, ChangeTracker changes) {
+        this.generation = generation;
+        this.allChanged = changes.hasAllChanged();
+        this.changedCount = changes.size();
+        if (changedPositions.length < changedCount) {
+            changedPositions = new int[Math.max(changedCount, changedPositions.length * 2)];
+        }
+        for (int i = 0; i < changedCount; i++) {
+            changedPositions[i] = changes.get(i);
+        }
+    }
+
+    void setEpoch(long epoch) {
+        this.epoch = epoch;
+    }
+
+    long getEpoch() {
+        return epoch;
+    }
+
+    int[] getChangedPositions() {
+        return changedPositions;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public boolean hasAllChanged() {
+        return allChanged;
+    }
+
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    public int getChangedPosition(int index) {
+        return changedPositions[index];
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public Lattice getLattice() {
+        return lattice;
+    }
+
+    @Override
+    public long getCycle() {
+        return cycle;
+    }
+
+    @Override
+    public boolean isOccupied(int position) {
+        return !individuals.isEmpty(position);
+    }
+
+    @Override
+    public int getGroupAt(int position) {
+        return individuals.getGroup(position);
+    }
+
+    @Override
+    public IndividualType getTypeAt(int position) {
+        return individuals.getType(position);
+    }
+
+    @Override
+    public int getColorsOfGroup(int group) {
+        return colorsOfGroup.getOrDefault(group, 0);
+    }
+
+    @Override
+    public long countAllIndividuals(IndividualType type) {
+        return IndividualType.COOPERATOR.equals(type) ? cooperators : defectors;
+    }
+
+    @Override
+    public long countAllGroups() {
+        return groups;
+    }
+}
@@ -0,0 +1,124 @@
+package pk.sk.model;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SnapshotExchange {
+    private final AtomicReference<SimulationSnapshot> ready = new AtomicReference<>();
+    private final AtomicReference<SimulationSnapshot> spare = new AtomicReference<>();
+    private SimulationSnapshot front;
+    private GroupSelectionSimulator source;
+    private ChangeTracker changes;
+    private SimulationSnapshot previous;
+    private long generation;
+    private volatile long epoch;
+
+    public long newEpoch() {
+        long next = epoch + 1;
+        epoch = next;
+        take();
+        previous = null;
+        if (changes != null) {
+            changes.markAll();
+        }
+        return next;
+    }
+
+    public boolean isCurrent(long epoch) {
+        return this.epoch == epoch;
+    }
+
+    public boolean publish(GroupSelectionSimulator simulator) {
+        return publish(simulator, epoch);
+    }
+
+    public boolean publish(GroupSelectionSimulator simulator, long epoch) {
+        if (!isCurrent(epoch) || ready.get() != null) {
+            return false;
+        }
+        SimulationSnapshot snapshot = obtain(simulator, spare.getAndSet(null));
+        fill(simulator, snapshot, epoch);
+        ready.set(snapshot);
+        return true;
+    }
+
+    public void publishLatest(GroupSelectionSimulator simulator) {
+        publishLatest(simulator, epoch);
+    }
+
+    public void publishLatest(GroupSelectionSimulator simulator, long epoch) {
+        if (!isCurrent(epoch)) {
+            return;
+        }
+        SimulationSnapshot snapshot = ready.getAndSet(null);
+        if (snapshot == null) {
+            snapshot = spare.getAndSet(null);
+        }
+        snapshot = obtain(simulator, snapshot);
+        fill(simulator, snapshot, epoch);
+        ready.set(snapshot);
+    }
+
+    private void fill(GroupSelectionSimulator simulator, SimulationSnapshot snapshot, long epoch) {
+        track(simulator);
+        snapshot.setEpoch(epoch);
+        long base = snapshot.getGeneration();
+        if (changes.hasAllChanged() || changes.size() > changes.getCapacity() / 4) {
+            simulator.copyTo(snapshot);
+        } else if (base >= 0 && base == generation) {
+            simulator.copyCellsTo(snapshot, changes);
+            simulator.copyStateTo(snapshot);
+        } else if (base >= 0 && base == generation - 1 && previous != null && !previous.hasAllChanged()) {
+            simulator.copyCellsTo(snapshot, previous.getChangedPositions(), previous.getChangedCount());
+            simulator.copyCellsTo(snapshot, changes);
+            simulator.copyStateTo(snapshot);
+        } else {
+            simulator.copyTo(snapshot);
+        }
+        snapshot.setChanges(++generation, changes);
+        changes.clear();
+        previous = snapshot;
+    }
+
+    private void track(GroupSelectionSimulator simulator) {
+        if (source == simulator) {
+            return;
+        }
+        if (source != null) {
+            source.removeChangeTracker(changes);
+        }
+        source = simulator;
+        changes = new ChangeTracker(simulator.getWidth() * simulator.getHeight());
+        changes.markAll();
+        simulator.addChangeTracker(changes);
+        previous = null;
+    }
+
+    private SimulationSnapshot obtain(GroupSelectionSimulator simulator, SimulationSnapshot snapshot) {
+        if (snapshot == null
+                || snapshot.getWidth() != simulator.getWidth()
+                || snapshot.getHeight() != simulator.getHeight()) {
+            return simulator.createSnapshot();
+        }
+        return snapshot;
+    }
+
+    public SimulationSnapshot take() {
+        SimulationSnapshot snapshot = ready.getAndSet(null);
+        if (snapshot == null) {
+            return null;
+        }
+        if (snapshot.getEpoch() != epoch) {
+            spare.set(snapshot);
+            return null;
+        }
+        if (front != null) {
+            spare.set(front);
+        }
+        front = snapshot;
+        return snapshot;
+    }
+
+    public void clear() {
+        take();
+    }
+}
@@ -0,0 +1,114 @@
+package pk.sk.model;
+
+import java.util.Arrays;
+
+class SpawnSites {
+    private final int[] siteGroup;
+    private final int[] siteIndex;
+    private final IntMap<SiteList> sitesOfGroup = new IntMap<>();
+    private SiteList[] released = new SiteList[16];
+    private int releasedCount;
+
+    SpawnSites(int cells) {
+        this.siteGroup = new int[cells];
+        this.siteIndex = new int[cells];
+        Arrays.fill(siteGroup, GridStore.EMPTY);
+    }
+
+    void set(int position, int groupNo) {
+        int oldGroup = siteGroup[position];
+        if (oldGroup == groupNo) {
+            return;
+        }
+        if (oldGroup != GridStore.EMPTY) {
+            SiteList sites = sitesOfGroup.get(oldGroup);
+            int moved = sites.remove(siteIndex[position]);
+            siteIndex[moved] = siteIndex[position];
+            if (sites.size == 0) {
+                release(sitesOfGroup.remove(oldGroup));
+            }
+        }
+        siteGroup[position] = groupNo;
+        if (groupNo != GridStore.EMPTY) {
+            SiteList sites = sitesOfGroup.get(groupNo);
+            if (sites == null) {
+                sites = acquire();
+                sitesOfGroup.put(groupNo, sites);
+            }
+            siteIndex[position] = sites.add(position);
+        }
+    }
+
+    int getGroup(int position) {
+        return siteGroup[position];
+    }
+
+    int count(int groupNo) {
+        SiteList sites = sitesOfGroup.get(groupNo);
+        return sites == null ? 0 : sites.size;
+    }
+
+    int get(int groupNo, int index) {
+        return sitesOfGroup.get(groupNo).positions[index];
+    }
+
+    int[] getGroupNumbers() {
+        int[] numbers = new int[sitesOfGroup.size()];
+        int i = 0;
+        for (int slot = 0; slot < sitesOfGroup.capacity(); slot++) {
+            if (sitesOfGroup.isUsed(slot)) {
+                numbers[i++] = sitesOfGroup.keyAt(slot);
+            }
+        }
+        return numbers;
+    }
+
+    void clear() {
+        for (int slot = 0; slot < sitesOfGroup.capacity(); slot++) {
+            if (sitesOfGroup.isUsed(slot)) {
+                SiteList sites = sitesOfGroup.valueAt(slot);
+                for (int i = 0; i < sites.size; i++) {
+                    siteGroup[sites.positions[i]] = GridStore.EMPTY;
+                }
+                release(sites);
+            }
+        }
+        sitesOfGroup.clear();
+    }
+
+    private SiteList acquire() {
+        if (releasedCount == 0) {
+            return new SiteList();
+        }
+        SiteList sites = released[--releasedCount];
+        released[releasedCount] = null;
+        return sites;
+    }
+
+    private void release(SiteList sites) {
+        sites.size = 0;
+        if (releasedCount == released.length) {
+            released = Arrays.copyOf(released, releasedCount * 2);
+        }
+        released[releasedCount++] = sites;
+    }
+
+    private static class SiteList {
+        private int[] positions = new int[16];
+        private int size;
+
+        private int add(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size] = position;
+            return size++;
+        }
+
+        private int remove(int index) {
+            int moved = positions[--size];
+            positions[index] = moved;
+            return moved;
+        }
+    }
+}
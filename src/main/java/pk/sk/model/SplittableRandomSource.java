@@ -0,0 +1,53 @@
+package pk.sk.model;
+
+public class SplittableRandomSource implements RandomSource {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long seed;
+
+    public SplittableRandomSource(long seed) {
+        setSeed(seed);
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    private long nextSeed() {
+        return seed += GOLDEN_GAMMA;
+    }
+
+    @Override
+    public long nextLong() {
+        return SeedSequence.mix(nextSeed());
+    }
+
+    private int nextInt() {
+        long z = nextSeed();
+        z = (z ^ (z >>> 33)) * 0x62A9D9ED799705F5L;
+        return (int) (((z ^ (z >>> 28)) * 0xCB24D0A5C88C35B3L) >>> 32);
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        int r = nextInt();
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return r & m;
+        }
+        int u = r >>> 1;
+        while (u + m - (r = u % bound) < 0) {
+            u = nextInt() >>> 1;
+        }
+        return r;
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+}
@@ -0,0 +1,176 @@
+package pk.sk.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+public class TimeSeriesStore {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final String[] names;
+    private final int buckets;
+    private long[][][] chunks = new long[0][][];
+    private long size;
+    private final long[][] minimums;
+    private final long[][] minimumCycles;
+    private final long[][] maximums;
+    private final long[][] maximumCycles;
+    private int bucketCount;
+    private long bucketWidth = 1;
+    private long bucketFill;
+
+    public TimeSeriesStore(int buckets, String... names) {
+        if (buckets < 2 || buckets % 2 != 0) {
+            throw new IllegalArgumentException("The number of buckets must be even and at least 2");
+        }
+        this.names = names.clone();
+        this.buckets = buckets;
+        this.minimums = new long[names.length][buckets];
+        this.minimumCycles = new long[names.length][buckets];
+        this.maximums = new long[names.length][buckets];
+        this.maximumCycles = new long[names.length][buckets];
+    }
+
+    public int getSeriesCount() {
+        return names.length;
+    }
+
+    public String getName(int series) {
+        return names[series];
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    public synchronized void append(long cycle, long[] values) {
+        if (values.length != names.length) {
+            throw new IllegalArgumentException("Expected " + names.length + " values but got " + values.length);
+        }
+        int chunk = (int) (size >>> CHUNK_BITS);
+        int offset = (int) (size & CHUNK_MASK);
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(1, chunk * 2));
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new long[names.length + 1][CHUNK_SIZE];
+        }
+        long[][] columns = chunks[chunk];
+        columns[0][offset] = cycle;
+        for (int i = 0; i < values.length; i++) {
+            columns[i + 1][offset] = values[i];
+        }
+        size++;
+        addToView(cycle, values);
+    }
+
+    private void addToView(long cycle, long[] values) {
+        if (bucketCount > 0 && bucketFill < bucketWidth) {
+            int bucket = bucketCount - 1;
+            for (int series = 0; series < values.length; series++) {
+                if (values[series] < minimums[series][bucket]) {
+                    minimums[series][bucket] = values[series];
+                    minimumCycles[series][bucket] = cycle;
+                }
+                if (values[series] > maximums[series][bucket]) {
+                    maximums[series][bucket] = values[series];
+                    maximumCycles[series][bucket] = cycle;
+                }
+            }
+            bucketFill++;
+            return;
+        }
+        if (bucketCount == buckets) {
+            mergeBuckets();
+        }
+        int bucket = bucketCount++;
+        for (int series = 0; series < values.length; series++) {
+            minimums[series][bucket] = values[series];
+            minimumCycles[series][bucket] = cycle;
+            maximums[series][bucket] = values[series];
+            maximumCycles[series][bucket] = cycle;
+        }
+        bucketFill = 1;
+    }
+
+    private void mergeBuckets() {
+        for (int series = 0; series < names.length; series++) {
+            long[] minimum = minimums[series];
+            long[] minimumCycle = minimumCycles[series];
+            long[] maximum = maximums[series];
+            long[] maximumCycle = maximumCycles[series];
+            for (int i = 0; i < buckets / 2; i++) {
+                int first = 2 * i;
+                int second = first + 1;
+                boolean lower = minimum[second] < minimum[first];
+                minimum[i] = lower ? minimum[second] : minimum[first];
+                minimumCycle[i] = lower ? minimumCycle[second] : minimumCycle[first];
+                boolean higher = maximum[second] > maximum[first];
+                maximum[i] = higher ? maximum[second] : maximum[first];
+                maximumCycle[i] = higher ? maximumCycle[second] : maximumCycle[first];
+            }
+        }
+        bucketCount = buckets / 2;
+        bucketWidth *= 2;
+    }
+
+    public synchronized void clear() {
+        chunks = new long[0][][];
+        size = 0;
+        bucketCount = 0;
+        bucketWidth = 1;
+        bucketFill = 0;
+    }
+
+    public synchronized int downsample(int series, long[] cycles, long[] values) {
+        int count = 0;
+        for (int bucket = 0; bucket < bucketCount && count + 2 <= cycles.length; bucket++) {
+            long minimumCycle = minimumCycles[series][bucket];
+            long maximumCycle = maximumCycles[series][bucket];
+            boolean minimumFirst = minimumCycle <= maximumCycle;
+            cycles[count] = minimumFirst ? minimumCycle : maximumCycle;
+            values[count++] = minimumFirst ? minimums[series][bucket] : maximums[series][bucket];
+            if (minimumCycle != maximumCycle) {
+                cycles[count] = minimumFirst ? maximumCycle : minimumCycle;
+                values[count++] = minimumFirst ? maximums[series][bucket] : minimums[series][bucket];
+            }
+        }
+        if (size > 0 && count < cycles.length) {
+            long[][] columns = chunks[(int) ((size - 1) >>> CHUNK_BITS)];
+            int last = (int) ((size - 1) & CHUNK_MASK);
+            if (count == 0 || columns[0][last] > cycles[count - 1]) {
+                cycles[count] = columns[0][last];
+                values[count++] = columns[series + 1][last];
+            }
+        }
+        return count;
+    }
+
+    public void export(Writer writer) throws IOException {
+        long[][][] retained;
+        long length;
+        synchronized (this) {
+            retained = chunks;
+            length = size;
+        }
+        writer.write("cycle");
+        for (String name : names) {
+            writer.write(',');
+            writer.write(name);
+        }
+        writer.write('\n');
+        for (long i = 0; i < length; i++) {
+            long[][] columns = retained[(int) (i >>> CHUNK_BITS)];
+            int offset = (int) (i & CHUNK_MASK);
+            writer.write(Long.toString(columns[0][offset]));
+            for (int series = 0; series < names.length; series++) {
+                writer.write(',');
+                writer.write(Long.toString(columns[series + 1][offset]));
+            }
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+}
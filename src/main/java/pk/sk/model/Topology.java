@@ -0,0 +1,25 @@
+package pk.sk.model;
+
+public enum Topology {
+    MOORE {
+        @Override
+        int distance(int dx, int dy, int parity) {
+            return Math.max(Math.abs(dx), Math.abs(dy));
+        }
+    },
+    VON_NEUMANN {
+        @Override
+        int distance(int dx, int dy, int parity) {
+            return Math.abs(dx) + Math.abs(dy);
+        }
+    },
+    HEXAGONAL {
+        @Override
+        int distance(int dx, int dy, int parity) {
+            int dq = dx - Math.floorDiv(parity + dy, 2);
+            return Math.max(Math.max(Math.abs(dq), Math.abs(dy)), Math.abs(dq + dy));
+        }
+    };
+
+    abstract int distance(int dx, int dy, int parity);
+}
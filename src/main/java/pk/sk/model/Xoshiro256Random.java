@@ -0,0 +1,56 @@
+package pk.sk.model;
+
+public class Xoshiro256Random implements RandomSource {
+    private long s0;
+    private long s1;
+    private long s2;
+    private long s3;
+
+    public Xoshiro256Random(long seed) {
+        setSeed(seed);
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        long z = seed;
+        s0 = SeedSequence.mix(z += 0x9E3779B97F4A7C15L);
+        s1 = SeedSequence.mix(z += 0x9E3779B97F4A7C15L);
+        s2 = SeedSequence.mix(z += 0x9E3779B97F4A7C15L);
+        s3 = SeedSequence.mix(z + 0x9E3779B97F4A7C15L);
+    }
+
+    @Override
+    public long nextLong() {
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        long product = (nextLong() >>> 32) * bound;
+        int low = (int) product;
+        if (Integer.compareUnsigned(low, bound) < 0) {
+            int threshold = Integer.remainderUnsigned(-bound, bound);
+            while (Integer.compareUnsigned(low, threshold) < 0) {
+                product = (nextLong() >>> 32) * bound;
+                low = (int) product;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+}
@@ -0,0 +1,61 @@
+package pk.sk.trajectory;
+
+import java.io.IOException;
+
+class FrameDecoder {
+    private byte[] bytes = new byte[0];
+    private int length;
+    private int offset;
+    private int lastPosition;
+    private int lastGroup;
+
+    void reset(byte[] bytes, int length) {
+        this.bytes = bytes;
+        this.length = length;
+        this.offset = 0;
+        this.lastPosition = 0;
+        this.lastGroup = 0;
+    }
+
+    boolean hasRemaining() {
+        return offset < length;
+    }
+
+    int readPosition() throws IOException {
+        lastPosition += readSigned();
+        return lastPosition;
+    }
+
+    int readGroup() throws IOException {
+        lastGroup += readSigned();
+        return lastGroup;
+    }
+
+    int readUnsigned() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int next = readByte();
+            value |= (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in trajectory frame");
+    }
+
+    private int readSigned() throws IOException {
+        int value = readUnsigned();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    int readInt() throws IOException {
+        return readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+    }
+
+    int readByte() throws IOException {
+        if (offset >= length) {
+            throw new IOException("Truncated trajectory frame");
+        }
+        return bytes[offset++] & 0xFF;
+    }
+}
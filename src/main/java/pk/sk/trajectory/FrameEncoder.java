@@ -0,0 +1,62 @@
+package pk.sk.trajectory;
+
+import java.util.Arrays;
+
+class FrameEncoder {
+    private byte[] bytes = new byte[1024];
+    private int size;
+    private int lastPosition;
+    private int lastGroup;
+
+    void reset() {
+        size = 0;
+        lastPosition = 0;
+        lastGroup = 0;
+    }
+
+    void writeCell(int position, int group, int cell) {
+        writeSigned(position - lastPosition);
+        lastPosition = position;
+        writeByte(cell);
+        if (cell != TrajectoryFormat.EMPTY_CELL) {
+            writeSigned(group - lastGroup);
+            lastGroup = group;
+        }
+    }
+
+    void writeColor(int group, int color) {
+        writeSigned(group - lastGroup);
+        lastGroup = group;
+        writeInt(color);
+    }
+
+    void writeUnsigned(int value) {
+        while ((value & ~0x7F) != 0) {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    private void writeSigned(int value) {
+        writeUnsigned((value << 1) ^ (value >> 31));
+    }
+
+    private void writeInt(int value) {
+        writeByte(value >>> 24);
+        writeByte(value >>> 16);
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+
+    private void writeByte(int value) {
+        if (size == bytes.length) {
+            bytes = Arrays.copyOf(bytes, size * 2);
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+}
@@ -0,0 +1,24 @@
+package pk.sk.trajectory;
+
+class RecordedFrame {
+    static final RecordedFrame END = new RecordedFrame(-1, TrajectoryFormat.DELTA, new byte[0], 0, 0, 0, 0);
+
+    final long cycle;
+    final byte kind;
+    final byte[] data;
+    final long population;
+    final long cooperators;
+    final long defectors;
+    final long groups;
+
+    RecordedFrame(long cycle, byte kind, byte[] data, long population, long cooperators, long defectors,
+                  long groups) {
+        this.cycle = cycle;
+        this.kind = kind;
+        this.data = data;
+        this.population = population;
+        this.cooperators = cooperators;
+        this.defectors = defectors;
+        this.groups = groups;
+    }
+}
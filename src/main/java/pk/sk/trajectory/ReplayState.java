@@ -0,0 +1,156 @@
+package pk.sk.trajectory;
+
+import pk.sk.model.IndividualType;
+import pk.sk.model.Lattice;
+import pk.sk.model.SimulationFrame;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class ReplayState implements SimulationFrame {
+    private final TrajectoryReader reader;
+    private final int width;
+    private final int height;
+    private final Lattice lattice;
+    private final byte[] cells;
+    private final int[] groups;
+    private final FrameDecoder decoder = new FrameDecoder();
+    private int[] colors = new int[64];
+    private int frame = -1;
+
+    public ReplayState(TrajectoryReader reader) throws IOException {
+        this.reader = reader;
+        this.width = reader.getWidth();
+        this.height = reader.getHeight();
+        this.lattice = new Lattice(width, height, 1, reader.getTopology(), reader.isToroidal());
+        this.cells = new byte[width * height];
+        this.groups = new int[width * height];
+        seekFrame(0);
+    }
+
+    public TrajectoryReader getReader() {
+        return reader;
+    }
+
+    public int getFrame() {
+        return frame;
+    }
+
+    public int getSegment() {
+        return reader.getSegment(frame);
+    }
+
+    public void seek(long cycle) throws IOException {
+        seekFrame(reader.findFrame(reader.getSegment(frame), cycle));
+    }
+
+    public void seekFrame(int target) throws IOException {
+        if (target == frame) {
+            return;
+        }
+        int keyframe = reader.findKeyframe(target);
+        int next = frame >= keyframe && frame < target ? frame + 1 : keyframe;
+        frame = -1;
+        for (; next <= target; next++) {
+            applyFrame(next);
+        }
+        frame = target;
+    }
+
+    private void applyFrame(int frameNo) throws IOException {
+        reader.readFrame(frameNo, decoder);
+        if (reader.isKeyframe(frameNo)) {
+            Arrays.fill(cells, (byte) TrajectoryFormat.EMPTY_CELL);
+            Arrays.fill(colors, 0);
+        }
+        int colorCount = decoder.readUnsigned();
+        for (int i = 0; i < colorCount; i++) {
+            setColor(decoder.readGroup(), decoder.readInt());
+        }
+        int cellCount = decoder.readUnsigned();
+        for (int i = 0; i < cellCount; i++) {
+            int position = decoder.readPosition();
+            if (position < 0 || position >= cells.length) {
+                throw new IOException("Corrupted trajectory frame " + frameNo);
+            }
+            int cell = decoder.readByte();
+            if (cell != TrajectoryFormat.EMPTY_CELL) {
+                if ((cell & 3) == 0 || (cell & 3) > IndividualType.values().length) {
+                    throw new IOException("Corrupted trajectory frame " + frameNo);
+                }
+                groups[position] = decoder.readGroup();
+            }
+            cells[position] = (byte) cell;
+        }
+        if (decoder.hasRemaining()) {
+            throw new IOException("Corrupted trajectory frame " + frameNo);
+        }
+    }
+
+    private void setColor(int group, int color) throws IOException {
+        if (group < 0) {
+            throw new IOException("Corrupted trajectory colors");
+        }
+        if (group >= colors.length) {
+            colors = Arrays.copyOf(colors, Math.max(colors.length * 2, group + 1));
+        }
+        colors[group] = color;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public Lattice getLattice() {
+        return lattice;
+    }
+
+    @Override
+    public long getCycle() {
+        return reader.getCycle(frame);
+    }
+
+    @Override
+    public boolean isOccupied(int position) {
+        return cells[position] != TrajectoryFormat.EMPTY_CELL;
+    }
+
+    @Override
+    public int getGroupAt(int position) {
+        return groups[position];
+    }
+
+    @Override
+    public IndividualType getTypeAt(int position) {
+        return TrajectoryFormat.unpackType(cells[position] & 0xFF);
+    }
+
+    public int getCostsAt(int position) {
+        return TrajectoryFormat.unpackCosts(cells[position] & 0xFF);
+    }
+
+    @Override
+    public int getColorsOfGroup(int group) {
+        return group >= 0 && group < colors.length ? colors[group] : 0;
+    }
+
+    @Override
+    public long countAllIndividuals(IndividualType type) {
+        if (IndividualType.COOPERATOR.equals(type)) {
+            return reader.getCooperators(frame);
+        }
+        return reader.getDefectors(frame);
+    }
+
+    @Override
+    public long countAllGroups() {
+        return reader.getGroups(frame);
+    }
+}
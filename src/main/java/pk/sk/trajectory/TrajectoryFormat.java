@@ -0,0 +1,41 @@
+package pk.sk.trajectory;
+
+import pk.sk.model.IndividualType;
+
+import java.nio.file.Path;
+
+final class TrajectoryFormat {
+    static final int MAGIC = 0x47535452;
+    static final int INDEX_MAGIC = 0x47535449;
+    static final int VERSION = 2;
+    static final int BOUNDED_MOORE_VERSION = 1;
+    static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8 + 4 + 4 + 4;
+    static final int BOUNDED_MOORE_HEADER_SIZE = 4 + 4 + 4 + 4 + 8 + 4;
+    static final int INDEX_HEADER_SIZE = 4 + 4;
+    static final int FRAME_HEADER_SIZE = 8 + 1 + 4 + 4;
+    static final int INDEX_ENTRY_SIZE = 8 + 8 + 4 + 4 + 8 + 8 + 8 + 8;
+    static final byte DELTA = 0;
+    static final byte KEYFRAME = 1;
+    static final int EMPTY_CELL = 0;
+
+    private static final IndividualType[] TYPES = IndividualType.values();
+
+    private TrajectoryFormat() {
+    }
+
+    static Path getIndexPath(Path trajectory) {
+        return trajectory.resolveSibling(trajectory.getFileName() + ".idx");
+    }
+
+    static int packCell(IndividualType type, int costs) {
+        return type.ordinal() + 1 | costs << 2;
+    }
+
+    static IndividualType unpackType(int cell) {
+        return TYPES[(cell & 3) - 1];
+    }
+
+    static int unpackCosts(int cell) {
+        return cell >>> 2;
+    }
+}
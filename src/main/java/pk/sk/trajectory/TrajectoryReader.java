@@ -0,0 +1,300 @@
+package pk.sk.trajectory;
+
+import pk.sk.model.Topology;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+public class TrajectoryReader implements Closeable {
+    private static final int CYCLE_OFFSET = 0;
+    private static final int FRAME_OFFSET = 8;
+    private static final int KIND_OFFSET = 16;
+    private static final int LENGTH_OFFSET = 20;
+    private static final int POPULATION_OFFSET = 24;
+    private static final int COOPERATORS_OFFSET = 32;
+    private static final int DEFECTORS_OFFSET = 40;
+    private static final int GROUPS_OFFSET = 48;
+
+    private final FileChannel trajectory;
+    private final MappedByteBuffer index;
+    private final int width;
+    private final int height;
+    private final long seed;
+    private final int keyframeInterval;
+    private final Topology topology;
+    private final boolean toroidal;
+    private final int frameCount;
+    private int[] segmentStarts = new int[16];
+    private int segmentCount;
+    private int[] keyframes = new int[16];
+    private int keyframeCount;
+    private final Inflater inflater = new Inflater();
+    private final ByteBuffer frameHeader = ByteBuffer.allocate(TrajectoryFormat.FRAME_HEADER_SIZE);
+    private ByteBuffer compressed = ByteBuffer.allocate(1024);
+    private byte[] frame = new byte[1024];
+
+    private TrajectoryReader(FileChannel trajectory, MappedByteBuffer index, ByteBuffer header) throws IOException {
+        this.trajectory = trajectory;
+        this.index = index;
+        if (header.getInt() != TrajectoryFormat.MAGIC) {
+            throw new IOException("Not a trajectory file");
+        }
+        int version = header.getInt();
+        if (version != TrajectoryFormat.VERSION && version != TrajectoryFormat.BOUNDED_MOORE_VERSION) {
+            throw new IOException("Unsupported trajectory version: " + version);
+        }
+        this.width = header.getInt();
+        this.height = header.getInt();
+        this.seed = header.getLong();
+        this.keyframeInterval = header.getInt();
+        if (version == TrajectoryFormat.BOUNDED_MOORE_VERSION) {
+            this.topology = Topology.MOORE;
+            this.toroidal = false;
+        } else {
+            int ordinal = header.getInt();
+            if (ordinal < 0 || ordinal >= Topology.values().length) {
+                throw new IOException("Unknown lattice topology: " + ordinal);
+            }
+            this.topology = Topology.values()[ordinal];
+            this.toroidal = header.getInt() != 0;
+        }
+        if (width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IOException("Invalid trajectory dimensions");
+        }
+        if (index.capacity() < TrajectoryFormat.INDEX_HEADER_SIZE
+                || index.getInt(0) != TrajectoryFormat.INDEX_MAGIC
+                || index.getInt(4) != version) {
+            throw new IOException("Invalid trajectory index");
+        }
+        this.frameCount = (index.capacity() - TrajectoryFormat.INDEX_HEADER_SIZE) / TrajectoryFormat.INDEX_ENTRY_SIZE;
+        if (frameCount == 0) {
+            throw new IOException("Trajectory does not start with a keyframe");
+        }
+        indexFrames();
+    }
+
+    private void indexFrames() throws IOException {
+        for (int frame = 0; frame < frameCount; frame++) {
+            boolean isKeyframe = isKeyframe(frame);
+            if (isKeyframe) {
+                if (keyframeCount == keyframes.length) {
+                    keyframes = Arrays.copyOf(keyframes, keyframeCount * 2);
+                }
+                keyframes[keyframeCount++] = frame;
+            }
+            if (frame > 0 && getCycle(frame) > getCycle(frame - 1)) {
+                continue;
+            }
+            if (!isKeyframe) {
+                throw new IOException("Trajectory segment does not start with a keyframe at frame " + frame);
+            }
+            if (segmentCount == segmentStarts.length) {
+                segmentStarts = Arrays.copyOf(segmentStarts, segmentCount * 2);
+            }
+            segmentStarts[segmentCount++] = frame;
+        }
+    }
+
+    public static TrajectoryReader open(Path file) throws IOException {
+        FileChannel trajectory = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(TrajectoryFormat.HEADER_SIZE);
+            header.limit(TrajectoryFormat.BOUNDED_MOORE_HEADER_SIZE);
+            readHeader(trajectory, header);
+            if (header.getInt(4) != TrajectoryFormat.BOUNDED_MOORE_VERSION) {
+                header.limit(TrajectoryFormat.HEADER_SIZE);
+                readHeader(trajectory, header);
+            }
+            header.flip();
+            MappedByteBuffer index;
+            try (FileChannel indexChannel = FileChannel.open(TrajectoryFormat.getIndexPath(file),
+                    StandardOpenOption.READ)) {
+                if (indexChannel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Trajectory index is too large");
+                }
+                index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+            }
+            return new TrajectoryReader(trajectory, index, header);
+        } catch (IOException | RuntimeException e) {
+            trajectory.close();
+            throw e;
+        }
+    }
+
+    private static void readHeader(FileChannel trajectory, ByteBuffer header) throws IOException {
+        while (header.hasRemaining()) {
+            if (trajectory.read(header, header.position()) < 0) {
+                throw new IOException("Truncated trajectory header");
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    public Topology getTopology() {
+        return topology;
+    }
+
+    public boolean isToroidal() {
+        return toroidal;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public long getCycle(int frame) {
+        return index.getLong(entry(frame) + CYCLE_OFFSET);
+    }
+
+    public boolean isKeyframe(int frame) {
+        return index.getInt(entry(frame) + KIND_OFFSET) == TrajectoryFormat.KEYFRAME;
+    }
+
+    public long getPopulation(int frame) {
+        return index.getLong(entry(frame) + POPULATION_OFFSET);
+    }
+
+    public long getCooperators(int frame) {
+        return index.getLong(entry(frame) + COOPERATORS_OFFSET);
+    }
+
+    public long getDefectors(int frame) {
+        return index.getLong(entry(frame) + DEFECTORS_OFFSET);
+    }
+
+    public long getGroups(int frame) {
+        return index.getLong(entry(frame) + GROUPS_OFFSET);
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    public int getSegment(int frame) {
+        entry(frame);
+        return floor(segmentStarts, segmentCount, frame);
+    }
+
+    public int getSegmentStart(int segment) {
+        if (segment < 0 || segment >= segmentCount) {
+            throw new IndexOutOfBoundsException("Segment " + segment + " of " + segmentCount);
+        }
+        return segmentStarts[segment];
+    }
+
+    public int getSegmentEnd(int segment) {
+        return segment + 1 < segmentCount ? segmentStarts[segment + 1] : frameCount;
+    }
+
+    public int findFrame(int segment, long cycle) {
+        int low = getSegmentStart(segment);
+        int high = getSegmentEnd(segment) - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (getCycle(middle) <= cycle) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    public int findKeyframe(int frame) {
+        entry(frame);
+        return keyframes[floor(keyframes, keyframeCount, frame)];
+    }
+
+    private static int floor(int[] frames, int count, int frame) {
+        int index = Arrays.binarySearch(frames, 0, count, frame);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    void readFrame(int frameNo, FrameDecoder decoder) throws IOException {
+        int entry = entry(frameNo);
+        long offset = index.getLong(entry + FRAME_OFFSET);
+        int compressedLength = index.getInt(entry + LENGTH_OFFSET);
+
+        frameHeader.clear();
+        readFully(frameHeader, offset);
+        frameHeader.flip();
+        long cycle = frameHeader.getLong();
+        byte kind = frameHeader.get();
+        int rawLength = frameHeader.getInt();
+        if (cycle != getCycle(frameNo) || kind != index.getInt(entry + KIND_OFFSET)
+                || frameHeader.getInt() != compressedLength || rawLength < 0) {
+            throw new IOException("Trajectory index does not match frame " + frameNo);
+        }
+
+        if (compressed.capacity() < compressedLength) {
+            compressed = ByteBuffer.allocate(compressedLength);
+        }
+        compressed.clear().limit(compressedLength);
+        readFully(compressed, offset + TrajectoryFormat.FRAME_HEADER_SIZE);
+        if (frame.length < rawLength) {
+            frame = new byte[rawLength];
+        }
+        inflater.reset();
+        inflater.setInput(compressed.array(), 0, compressedLength);
+        try {
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(frame, length, rawLength - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != rawLength) {
+                throw new IOException("Corrupted trajectory frame " + frameNo);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted trajectory frame " + frameNo, e);
+        }
+        decoder.reset(frame, rawLength);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (trajectory.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated trajectory file");
+            }
+        }
+    }
+
+    private int entry(int frame) {
+        if (frame < 0 || frame >= frameCount) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " of " + frameCount);
+        }
+        return TrajectoryFormat.INDEX_HEADER_SIZE + frame * TrajectoryFormat.INDEX_ENTRY_SIZE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        trajectory.close();
+    }
+}
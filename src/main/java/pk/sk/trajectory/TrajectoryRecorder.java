@@ -0,0 +1,277 @@
+package pk.sk.trajectory;
+
+import pk.sk.model.ChangeTracker;
+import pk.sk.model.CycleListener;
+import pk.sk.model.GroupSelectionSimulator;
+import pk.sk.model.IndividualType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+public class TrajectoryRecorder implements CycleListener, Closeable {
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 1000;
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    private final GroupSelectionSimulator simulator;
+    private final int keyframeInterval;
+    private final ChangeTracker changes;
+    private final BlockingQueue<RecordedFrame> queue;
+    private final FrameEncoder encoder = new FrameEncoder();
+    private final FileChannel trajectory;
+    private final FileChannel index;
+    private final Thread writer;
+    private volatile IOException failure;
+    private int announcedGroups;
+    private long lastCycle = -1;
+    private boolean closed;
+
+    public TrajectoryRecorder(GroupSelectionSimulator simulator, Path file) throws IOException {
+        this(simulator, file, DEFAULT_KEYFRAME_INTERVAL, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public TrajectoryRecorder(GroupSelectionSimulator simulator, Path file, int keyframeInterval, int queueCapacity)
+            throws IOException {
+        if (keyframeInterval < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Keyframe interval and queue capacity must be positive");
+        }
+        this.simulator = simulator;
+        this.keyframeInterval = keyframeInterval;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.changes = new ChangeTracker(simulator.getWidth() * simulator.getHeight());
+        this.trajectory = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        try {
+            this.index = FileChannel.open(TrajectoryFormat.getIndexPath(file), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            trajectory.close();
+            throw e;
+        }
+        writeHeaders();
+
+        simulator.addChangeTracker(changes);
+        this.writer = new Thread(this::writeFrames, "trajectory-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        cycleCompleted(simulator);
+        simulator.addCycleListener(this);
+    }
+
+    private void writeHeaders() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(TrajectoryFormat.HEADER_SIZE);
+        header.putInt(TrajectoryFormat.MAGIC);
+        header.putInt(TrajectoryFormat.VERSION);
+        header.putInt(simulator.getWidth());
+        header.putInt(simulator.getHeight());
+        header.putLong(simulator.getSeed());
+        header.putInt(keyframeInterval);
+        header.putInt(simulator.getLattice().getTopology().ordinal());
+        header.putInt(simulator.getLattice().isToroidal() ? 1 : 0);
+        header.flip();
+        writeFully(trajectory, header);
+
+        ByteBuffer indexHeader = ByteBuffer.allocate(TrajectoryFormat.INDEX_HEADER_SIZE);
+        indexHeader.putInt(TrajectoryFormat.INDEX_MAGIC);
+        indexHeader.putInt(TrajectoryFormat.VERSION);
+        indexHeader.flip();
+        writeFully(index, indexHeader);
+    }
+
+    @Override
+    public void cycleCompleted(GroupSelectionSimulator simulator) {
+        checkFailure();
+        long cycle = simulator.getCycle();
+        boolean isKeyframe = lastCycle < 0 || cycle <= lastCycle || changes.hasAllChanged()
+                || cycle % keyframeInterval == 0;
+        lastCycle = cycle;
+        encoder.reset();
+        if (isKeyframe) {
+            encodeKeyframe();
+        } else {
+            encodeDelta();
+        }
+        changes.clear();
+        RecordedFrame frame = new RecordedFrame(cycle,
+                isKeyframe ? TrajectoryFormat.KEYFRAME : TrajectoryFormat.DELTA,
+                encoder.toByteArray(),
+                simulator.countAllIndividuals(),
+                simulator.countAllIndividuals(IndividualType.COOPERATOR),
+                simulator.countAllIndividuals(IndividualType.DEFECTOR),
+                simulator.countAllGroups());
+        enqueue(frame);
+    }
+
+    private void encodeKeyframe() {
+        int cells = simulator.getWidth() * simulator.getHeight();
+        Set<Integer> groups = new HashSet<>();
+        for (int i = 0; i < cells; i++) {
+            if (simulator.isOccupied(i)) {
+                groups.add(simulator.getGroupAt(i));
+            }
+        }
+        int[] groupNumbers = new int[groups.size()];
+        int count = 0;
+        for (int groupNo : groups) {
+            groupNumbers[count++] = groupNo;
+        }
+        Arrays.sort(groupNumbers);
+        encoder.writeUnsigned(groupNumbers.length);
+        for (int groupNo : groupNumbers) {
+            encoder.writeColor(groupNo, simulator.getColorsOfGroup(groupNo));
+        }
+
+        encoder.writeUnsigned((int) simulator.countAllIndividuals());
+        for (int i = 0; i < cells; i++) {
+            if (simulator.isOccupied(i)) {
+                encodeCell(i);
+            }
+        }
+        announcedGroups = simulator.getLastGroupNumber();
+    }
+
+    private void encodeDelta() {
+        int lastGroupNumber = simulator.getLastGroupNumber();
+        int colors = 0;
+        for (int groupNo = announcedGroups; groupNo < lastGroupNumber; groupNo++) {
+            if (simulator.getColorsOfGroup(groupNo) != 0) {
+                colors++;
+            }
+        }
+        encoder.writeUnsigned(colors);
+        for (int groupNo = announcedGroups; groupNo < lastGroupNumber; groupNo++) {
+            int color = simulator.getColorsOfGroup(groupNo);
+            if (color != 0) {
+                encoder.writeColor(groupNo, color);
+            }
+        }
+        announcedGroups = lastGroupNumber;
+
+        encoder.writeUnsigned(changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            encodeCell(changes.get(i));
+        }
+    }
+
+    private void encodeCell(int position) {
+        if (!simulator.isOccupied(position)) {
+            encoder.writeCell(position, 0, TrajectoryFormat.EMPTY_CELL);
+            return;
+        }
+        encoder.writeCell(position, simulator.getGroupAt(position),
+                TrajectoryFormat.packCell(simulator.getTypeAt(position), simulator.getCostsAt(position)));
+    }
+
+    private void enqueue(RecordedFrame frame) {
+        try {
+            queue.put(frame);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the trajectory writer", e);
+        }
+    }
+
+    private void writeFrames() {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        byte[] compressed = new byte[1024];
+        ByteBuffer frameHeader = ByteBuffer.allocate(TrajectoryFormat.FRAME_HEADER_SIZE);
+        ByteBuffer indexEntry = ByteBuffer.allocate(TrajectoryFormat.INDEX_ENTRY_SIZE);
+        try {
+            for (RecordedFrame frame = queue.take(); frame != RecordedFrame.END; frame = queue.take()) {
+                if (failure != null) {
+                    continue;
+                }
+                deflater.reset();
+                deflater.setInput(frame.data);
+                deflater.finish();
+                int length = 0;
+                while (!deflater.finished()) {
+                    if (length == compressed.length) {
+                        compressed = Arrays.copyOf(compressed, length * 2);
+                    }
+                    length += deflater.deflate(compressed, length, compressed.length - length);
+                }
+                long offset = trajectory.position();
+
+                frameHeader.clear();
+                frameHeader.putLong(frame.cycle);
+                frameHeader.put(frame.kind);
+                frameHeader.putInt(frame.data.length);
+                frameHeader.putInt(length);
+                frameHeader.flip();
+                writeFully(trajectory, frameHeader);
+                writeFully(trajectory, ByteBuffer.wrap(compressed, 0, length));
+
+                indexEntry.clear();
+                indexEntry.putLong(frame.cycle);
+                indexEntry.putLong(offset);
+                indexEntry.putInt(frame.kind);
+                indexEntry.putInt(length);
+                indexEntry.putLong(frame.population);
+                indexEntry.putLong(frame.cooperators);
+                indexEntry.putLong(frame.defectors);
+                indexEntry.putLong(frame.groups);
+                indexEntry.flip();
+                writeFully(index, indexEntry);
+            }
+        } catch (IOException e) {
+            failure = e;
+            queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void checkFailure() {
+        IOException exception = failure;
+        if (exception != null) {
+            throw new UncheckedIOException("Can not write trajectory", exception);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        simulator.removeCycleListener(this);
+        simulator.removeChangeTracker(changes);
+        try {
+            while (writer.isAlive() && !queue.offer(RecordedFrame.END, 100, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                trajectory.close();
+            } finally {
+                index.close();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package pk.sk.controller;
+
+import org.junit.Test;
+import pk.sk.model.GroupSelectionSimulator;
+import pk.sk.model.SimulationSnapshot;
+import pk.sk.model.SnapshotExchange;
+import pk.sk.model.Topology;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GridRendererTest {
+    private static final int WIDTH = 60;
+    private static final int HEIGHT = 40;
+    private static final int CYCLES = 2000;
+
+    @Test
+    public void incrementalRenderMatchesFullRenderOnBoundedMoore() {
+        assertIncrementalRenderMatchesFullRender(Topology.MOORE, false);
+    }
+
+    @Test
+    public void incrementalRenderMatchesFullRenderOnToroidalMoore() {
+        assertIncrementalRenderMatchesFullRender(Topology.MOORE, true);
+    }
+
+    @Test
+    public void incrementalRenderMatchesFullRenderOnBoundedVonNeumann() {
+        assertIncrementalRenderMatchesFullRender(Topology.VON_NEUMANN, false);
+    }
+
+    @Test
+    public void incrementalRenderMatchesFullRenderOnToroidalVonNeumann() {
+        assertIncrementalRenderMatchesFullRender(Topology.VON_NEUMANN, true);
+    }
+
+    @Test
+    public void incrementalRenderMatchesFullRenderOnBoundedHexagonal() {
+        assertIncrementalRenderMatchesFullRender(Topology.HEXAGONAL, false);
+    }
+
+    @Test
+    public void incrementalRenderMatchesFullRenderOnToroidalHexagonal() {
+        assertIncrementalRenderMatchesFullRender(Topology.HEXAGONAL, true);
+    }
+
+    private static void assertIncrementalRenderMatchesFullRender(Topology topology, boolean toroidal) {
+        GroupSelectionSimulator simulator = new GroupSelectionSimulator(WIDTH, HEIGHT, topology, toroidal);
+        simulator.setMaxNumberOfGroups(24);
+        simulator.setMaxPopulationPerGroup(40);
+        simulator.initNewSimulation(24, 80, 10, 42);
+
+        SnapshotExchange exchange = new SnapshotExchange();
+        GridRenderer incremental = new GridRenderer();
+        GridRenderer full = new GridRenderer();
+        int[] incrementalPixels = new int[WIDTH * HEIGHT];
+        int[] fullPixels = new int[WIDTH * HEIGHT];
+
+        exchange.publish(simulator);
+        incremental.updatePixelValues(exchange.take(), incrementalPixels);
+        int incrementalRenders = 0;
+        for (int cycle = 1; cycle <= CYCLES; cycle++) {
+            simulator.nextStep();
+            exchange.publish(simulator);
+            SimulationSnapshot snapshot = exchange.take();
+            incremental.updateChangedPixels(snapshot, incrementalPixels);
+            if (incremental.getTouchedCount() != GridRenderer.ALL_PIXELS) {
+                incrementalRenders++;
+            }
+            full.updatePixelValues(snapshot, fullPixels);
+            assertArrayEquals(topology + (toroidal ? " toroidal" : " bounded") + " cycle " + cycle,
+                    fullPixels, incrementalPixels);
+        }
+        assertTrue("No cycle was rendered incrementally", incrementalRenders > 0);
+    }
+}
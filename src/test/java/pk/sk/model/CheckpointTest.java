@@ -0,0 +1,103 @@
+package pk.sk.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CheckpointTest {
+    private static final int WIDTH = 60;
+    private static final int HEIGHT = 40;
+    private static final int CYCLES_BEFORE_SAVE = 300;
+    private static final int CYCLES_AFTER_SAVE = 300;
+
+    @Test
+    public void resumedRunMatchesUninterruptedRunOnBoundedMoore() throws IOException {
+        assertResumedRunMatchesUninterruptedRun(Topology.MOORE, false);
+    }
+
+    @Test
+    public void resumedRunMatchesUninterruptedRunOnToroidalVonNeumann() throws IOException {
+        assertResumedRunMatchesUninterruptedRun(Topology.VON_NEUMANN, true);
+    }
+
+    @Test
+    public void resumedRunMatchesUninterruptedRunOnToroidalHexagonal() throws IOException {
+        assertResumedRunMatchesUninterruptedRun(Topology.HEXAGONAL, true);
+    }
+
+    @Test
+    public void truncatedCheckpointIsRejected() throws IOException {
+        Path path = Files.createTempFile("checkpoint", ".bin");
+        try {
+            Checkpoint.save(createSimulator(Topology.MOORE, false), path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() / 2);
+            }
+            try {
+                Checkpoint.load(path);
+                fail("Truncated checkpoint was loaded");
+            } catch (IOException expected) {
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static void assertResumedRunMatchesUninterruptedRun(Topology topology, boolean toroidal)
+            throws IOException {
+        GroupSelectionSimulator uninterrupted = createSimulator(topology, toroidal);
+        for (int cycle = 0; cycle < CYCLES_BEFORE_SAVE; cycle++) {
+            uninterrupted.nextStep();
+        }
+
+        GroupSelectionSimulator resumed;
+        Path path = Files.createTempFile("checkpoint", ".bin");
+        try {
+            Checkpoint.save(uninterrupted, path);
+            resumed = Checkpoint.load(path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+        String name = topology + (toroidal ? " toroidal" : " bounded");
+        assertEquals(name + " seed", uninterrupted.getSeed(), resumed.getSeed());
+        assertSameState(name + " resumed", uninterrupted, resumed);
+
+        for (int cycle = 1; cycle <= CYCLES_AFTER_SAVE; cycle++) {
+            uninterrupted.nextStep();
+            resumed.nextStep();
+            assertSameState(name + " cycle " + uninterrupted.getCycle(), uninterrupted, resumed);
+        }
+    }
+
+    private static GroupSelectionSimulator createSimulator(Topology topology, boolean toroidal) {
+        GroupSelectionSimulator simulator = new GroupSelectionSimulator(WIDTH, HEIGHT, topology, toroidal);
+        simulator.setMaxNumberOfGroups(24);
+        simulator.setMaxPopulationPerGroup(40);
+        simulator.initNewSimulation(24, 80, 10, 42);
+        return simulator;
+    }
+
+    private static void assertSameState(String message, GroupSelectionSimulator expected,
+                                        GroupSelectionSimulator actual) {
+        assertEquals(message + " cycle", expected.getCycle(), actual.getCycle());
+        assertEquals(message + " groups", expected.countAllGroups(), actual.countAllGroups());
+        assertEquals(message + " last group", expected.getLastGroupNumber(), actual.getLastGroupNumber());
+        assertEquals(message + " population", expected.countAllIndividuals(), actual.countAllIndividuals());
+        assertEquals(message + " costs", expected.getTotalCosts(), actual.getTotalCosts());
+        for (int position = 0; position < expected.getWidth() * expected.getHeight(); position++) {
+            assertEquals(message + " occupied " + position, expected.isOccupied(position), actual.isOccupied(position));
+            if (expected.isOccupied(position)) {
+                assertEquals(message + " group " + position, expected.getGroupAt(position), actual.getGroupAt(position));
+                assertEquals(message + " type " + position, expected.getTypeAt(position), actual.getTypeAt(position));
+                assertEquals(message + " costs " + position, expected.getCostsAt(position), actual.getCostsAt(position));
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package pk.sk.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelStepTest {
+    private static final int WIDTH = 60;
+    private static final int HEIGHT = 64;
+    private static final int CYCLES = 500;
+
+    @Test
+    public void parallelStepMatchesSequentialStepOnBoundedMoore() {
+        assertParallelStepMatchesSequentialStep(Topology.MOORE, false);
+    }
+
+    @Test
+    public void parallelStepMatchesSequentialStepOnToroidalMoore() {
+        assertParallelStepMatchesSequentialStep(Topology.MOORE, true);
+    }
+
+    @Test
+    public void parallelStepMatchesSequentialStepOnBoundedVonNeumann() {
+        assertParallelStepMatchesSequentialStep(Topology.VON_NEUMANN, false);
+    }
+
+    @Test
+    public void parallelStepMatchesSequentialStepOnToroidalVonNeumann() {
+        assertParallelStepMatchesSequentialStep(Topology.VON_NEUMANN, true);
+    }
+
+    @Test
+    public void parallelStepMatchesSequentialStepOnBoundedHexagonal() {
+        assertParallelStepMatchesSequentialStep(Topology.HEXAGONAL, false);
+    }
+
+    @Test
+    public void parallelStepMatchesSequentialStepOnToroidalHexagonal() {
+        assertParallelStepMatchesSequentialStep(Topology.HEXAGONAL, true);
+    }
+
+    private static void assertParallelStepMatchesSequentialStep(Topology topology, boolean toroidal) {
+        GroupSelectionSimulator sequential = createSimulator(topology, toroidal, false);
+        GroupSelectionSimulator parallel = createSimulator(topology, toroidal, true);
+        String name = topology + (toroidal ? " toroidal" : " bounded");
+
+        for (int cycle = 1; cycle <= CYCLES; cycle++) {
+            sequential.nextStep();
+            parallel.nextStep();
+            assertSameState(name + " cycle " + cycle, sequential, parallel);
+        }
+        assertTrue(name + " died out", sequential.countAllIndividuals() > 0);
+    }
+
+    private static GroupSelectionSimulator createSimulator(Topology topology, boolean toroidal, boolean parallel) {
+        GroupSelectionSimulator simulator = new GroupSelectionSimulator(WIDTH, HEIGHT, topology, toroidal);
+        simulator.setMaxNumberOfGroups(24);
+        simulator.setMaxPopulationPerGroup(40);
+        simulator.setParallel(parallel);
+        simulator.initNewSimulation(24, 80, 10, 42);
+        return simulator;
+    }
+
+    private static void assertSameState(String message, GroupSelectionSimulator expected, GroupSelectionSimulator actual) {
+        assertEquals(message + " cycle", expected.getCycle(), actual.getCycle());
+        assertEquals(message + " groups", expected.countAllGroups(), actual.countAllGroups());
+        assertEquals(message + " last group", expected.getLastGroupNumber(), actual.getLastGroupNumber());
+        assertEquals(message + " population", expected.countAllIndividuals(), actual.countAllIndividuals());
+        assertEquals(message + " costs", expected.getTotalCosts(), actual.getTotalCosts());
+        for (int position = 0; position < expected.getWidth() * expected.getHeight(); position++) {
+            assertEquals(message + " occupied " + position, expected.isOccupied(position), actual.isOccupied(position));
+            if (expected.isOccupied(position)) {
+                assertEquals(message + " group " + position, expected.getGroupAt(position), actual.getGroupAt(position));
+                assertEquals(message + " type " + position, expected.getTypeAt(position), actual.getTypeAt(position));
+                assertEquals(message + " costs " + position, expected.getCostsAt(position), actual.getCostsAt(position));
+            }
+        }
+    }
+}
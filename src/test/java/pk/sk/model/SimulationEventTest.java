@@ -0,0 +1,148 @@
+package pk.sk.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimulationEventTest {
+    private static final int WIDTH = 60;
+    private static final int HEIGHT = 40;
+    private static final int CYCLES = 1000;
+
+    @Test
+    public void eventCountsMatchMetrics() {
+        GroupSelectionSimulator simulator = createSimulator();
+        simulator.getMetrics().setEnabled(true);
+        simulator.initNewSimulation(24, 80, 10, 42);
+        SimulationMetrics metrics = simulator.getMetrics();
+        long births = metrics.getBirths();
+        long deaths = metrics.getDeaths();
+        long splits = metrics.getSplits();
+        long groupKills = metrics.getGroupKills();
+        EventCounter counter = new EventCounter();
+        simulator.addEventListener(counter);
+
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            simulator.nextStep();
+        }
+
+        assertTrue("No group was split", metrics.getSplits() > splits);
+        assertEquals("BORN", metrics.getBirths() - births, counter.get(SimulationEventType.BORN));
+        assertEquals("DIED", metrics.getDeaths() - deaths, counter.get(SimulationEventType.DIED));
+        assertEquals("GROUP_SPLIT", 2 * (metrics.getSplits() - splits), counter.get(SimulationEventType.GROUP_SPLIT));
+        assertEquals("GROUP_KILLED", metrics.getGroupKills() - groupKills,
+                counter.get(SimulationEventType.GROUP_KILLED));
+    }
+
+    @Test
+    public void eventsReproduceOccupancyFromInitialization() {
+        GroupSelectionSimulator simulator = createSimulator();
+        OccupancyMirror mirror = new OccupancyMirror(WIDTH * HEIGHT);
+        simulator.addEventListener(mirror);
+        simulator.initNewSimulation(24, 80, 10, 42);
+        assertMirrorMatches("initialization", mirror, simulator);
+
+        for (int cycle = 1; cycle <= CYCLES; cycle++) {
+            simulator.nextStep();
+            assertMirrorMatches("cycle " + cycle, mirror, simulator);
+        }
+    }
+
+    @Test
+    public void resetBatchCarriesCurrentOccupancy() {
+        GroupSelectionSimulator simulator = createSimulator();
+        simulator.initNewSimulation(24, 80, 10, 42);
+        for (int cycle = 0; cycle < CYCLES / 2; cycle++) {
+            simulator.nextStep();
+        }
+
+        OccupancyMirror mirror = new OccupancyMirror(WIDTH * HEIGHT);
+        simulator.addEventListener(mirror);
+        assertEquals("resets", 1, mirror.resets);
+        assertMirrorMatches("subscription", mirror, simulator);
+
+        for (int cycle = 1; cycle <= CYCLES / 2; cycle++) {
+            simulator.nextStep();
+            assertMirrorMatches("cycle " + simulator.getCycle(), mirror, simulator);
+        }
+    }
+
+    private static GroupSelectionSimulator createSimulator() {
+        GroupSelectionSimulator simulator = new GroupSelectionSimulator(WIDTH, HEIGHT);
+        simulator.setMaxNumberOfGroups(24);
+        simulator.setMaxPopulationPerGroup(40);
+        return simulator;
+    }
+
+    private static void assertMirrorMatches(String message, OccupancyMirror mirror,
+                                            GroupSelectionSimulator simulator) {
+        for (int position = 0; position < mirror.groups.length; position++) {
+            int group = simulator.isOccupied(position) ? simulator.getGroupAt(position) : OccupancyMirror.EMPTY;
+            assertEquals(message + " group " + position, group, mirror.groups[position]);
+            if (group != OccupancyMirror.EMPTY) {
+                assertEquals(message + " type " + position, simulator.getTypeAt(position), mirror.types[position]);
+            }
+        }
+    }
+
+    private static class EventCounter implements SimulationEventListener {
+        private final long[] counts = new long[SimulationEventType.values().length];
+
+        @Override
+        public void eventsOccurred(SimulationEventBatch batch) {
+            if (batch.isReset()) {
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                counts[batch.getType(i).ordinal()]++;
+            }
+        }
+
+        long get(SimulationEventType type) {
+            return counts[type.ordinal()];
+        }
+    }
+
+    private static class OccupancyMirror implements SimulationEventListener {
+        private static final int EMPTY = -1;
+
+        private final int[] groups;
+        private final IndividualType[] types;
+        private int resets;
+
+        OccupancyMirror(int cells) {
+            groups = new int[cells];
+            types = new IndividualType[cells];
+            Arrays.fill(groups, EMPTY);
+        }
+
+        @Override
+        public void eventsOccurred(SimulationEventBatch batch) {
+            if (batch.isReset()) {
+                Arrays.fill(groups, EMPTY);
+                Arrays.fill(types, null);
+                resets++;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                int position = batch.getPosition(i);
+                switch (batch.getType(i)) {
+                    case BORN:
+                    case MOVED:
+                    case TYPE_CHANGED:
+                        groups[position] = batch.getGroup(i);
+                        types[position] = batch.getIndividualType(i);
+                        break;
+                    case DIED:
+                        groups[position] = EMPTY;
+                        types[position] = null;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+}